@@ -0,0 +1,121 @@
+package uz.kuponbot.kupon.bot;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kanal obunasi tekshiruvi (GetChatMember) natijalarini qisqa muddat saqlaydi.
+ * Obuna bo'lganlar uzoqroq, obuna bo'lmaganlar qisqaroq keshlanadi. Bitta foydalanuvchi
+ * uchun bir vaqtdagi tekshiruvlar bitta API so'roviga birlashtiriladi.
+ */
+@Component
+@Slf4j
+public class ChannelSubscriptionCache {
+
+    @FunctionalInterface
+    public interface SubscriptionLoader {
+        boolean load(Long userId) throws TelegramApiException;
+    }
+
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxSize;
+
+    private final Map<Long, CachedResult> results = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder apiCalls = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+    private final LongAdder apiErrors = new LongAdder();
+
+    public ChannelSubscriptionCache(
+            @Value("${telegram.channel.subscription-cache.positive-ttl-seconds:600}") long positiveTtlSeconds,
+            @Value("${telegram.channel.subscription-cache.negative-ttl-seconds:5}") long negativeTtlSeconds,
+            @Value("${telegram.channel.subscription-cache.max-size:10000}") int maxSize) {
+        this.positiveTtlNanos = TimeUnit.SECONDS.toNanos(positiveTtlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public boolean isSubscribed(Long userId, SubscriptionLoader loader) {
+        CachedResult cached = results.get(userId);
+        if (cached != null && !cached.isExpired()) {
+            cacheHits.increment();
+            return cached.subscribed();
+        }
+
+        CompletableFuture<Boolean> request = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(userId, request);
+        if (existing != null) {
+            // Shu foydalanuvchi uchun so'rov allaqachon ketyapti - natijasini kutamiz
+            coalescedCalls.increment();
+            return existing.join();
+        }
+
+        try {
+            apiCalls.increment();
+            boolean subscribed = loader.load(userId);
+            store(userId, subscribed);
+            request.complete(subscribed);
+            return subscribed;
+        } catch (TelegramApiException | RuntimeException e) {
+            // Xatolik keshlanmaydi, keyingi bosishda qayta tekshiriladi
+            apiErrors.increment();
+            log.error("Error checking channel subscription for user {}: ", userId, e);
+            request.complete(false);
+            return false;
+        } finally {
+            inFlight.remove(userId, request);
+        }
+    }
+
+    public void invalidate(Long userId) {
+        results.remove(userId);
+    }
+
+    private void store(Long userId, boolean subscribed) {
+        if (results.size() >= maxSize) {
+            results.values().removeIf(CachedResult::isExpired);
+            if (results.size() >= maxSize) {
+                results.clear();
+            }
+        }
+        long ttl = subscribed ? positiveTtlNanos : negativeTtlNanos;
+        results.put(userId, new CachedResult(subscribed, System.nanoTime() + ttl));
+    }
+
+    public Stats getStats() {
+        long saved = cacheHits.sum() + coalescedCalls.sum();
+        return new Stats(results.size(), apiCalls.sum(), cacheHits.sum(), coalescedCalls.sum(),
+            apiErrors.sum(), saved);
+    }
+
+    private record CachedResult(boolean subscribed, long expiresAt) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private long apiCalls;
+        private long cacheHits;
+        private long coalescedCalls;
+        private long apiErrors;
+        private long apiCallsSaved;
+    }
+}
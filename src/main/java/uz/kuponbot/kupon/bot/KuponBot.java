@@ -1,12 +1,13 @@
 package uz.kuponbot.kupon.bot;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -14,6 +15,7 @@ import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
@@ -26,13 +28,18 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.Keyboard
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.dto.BroadcastProgressDto;
+import uz.kuponbot.kupon.entity.BroadcastJob;
 import uz.kuponbot.kupon.entity.User;
 import uz.kuponbot.kupon.entity.Voucher;
+import uz.kuponbot.kupon.service.BroadcastJobService;
 import uz.kuponbot.kupon.service.BroadcastService;
 import uz.kuponbot.kupon.service.CashbackService;
 import uz.kuponbot.kupon.service.CouponService;
+import uz.kuponbot.kupon.service.MessageTemplates;
 import uz.kuponbot.kupon.service.NotificationService;
 import uz.kuponbot.kupon.service.UserService;
 import uz.kuponbot.kupon.service.VoucherService;
@@ -46,8 +53,13 @@ public class KuponBot extends TelegramLongPollingBot {
     private final CouponService couponService;
     private final NotificationService notificationService;
     private final BroadcastService broadcastService;
+    private final BroadcastJobService broadcastJobService;
     private final VoucherService voucherService;
     private final CashbackService cashbackService;
+    private final UpdateDispatcher updateDispatcher;
+    private final ChannelSubscriptionCache subscriptionCache;
+    private final TelegramSendGateway sendGateway;
+    private final MessageTemplates messageTemplates;
     
     @Value("${telegram.bot.token}")
     private String botToken;
@@ -61,9 +73,8 @@ public class KuponBot extends TelegramLongPollingBot {
     @Value("${telegram.channel.id}")
     private String channelId;
     
-    // Pending broadcast message storage
-    private Message pendingBroadcastMessage = null;
-    private Long pendingBroadcastAdminId = null;
+    // Pending broadcast message storage (admin chat ID -> xabar)
+    private final Map<Long, Message> pendingBroadcastMessages = new ConcurrentHashMap<>();
     
     @Override
     public String getBotToken() {
@@ -75,8 +86,18 @@ public class KuponBot extends TelegramLongPollingBot {
         return botUsername;
     }
     
+    @PostConstruct
+    public void startUpdateDispatcher() {
+        updateDispatcher.start(this::processUpdate);
+    }
+    
     @Override
     public void onUpdateReceived(Update update) {
+        // Update'lar chat bo'yicha worker'larga tarqatiladi, polling thread bloklanmaydi
+        updateDispatcher.dispatch(update);
+    }
+    
+    private void processUpdate(Update update) {
         if (update.hasMessage()) {
             Message message = update.getMessage();
             Long chatId = message.getChatId();
@@ -115,15 +136,14 @@ public class KuponBot extends TelegramLongPollingBot {
     }
     
     private void handleMessage(Message message, Long chatId, Long userId) {
-        // ✅ HAR SAFAR bazadan yangisini yuklash
+        // Foydalanuvchi sessiya keshidan (yoki bazadan) olinadi
         Optional<User> userOpt = userService.findByTelegramId(userId);
         
         if (userOpt.isEmpty()) {
-            User newUser = userService.createUser(userId);
-            if (message.getFrom().getUserName() != null) {
-                newUser.setTelegramUsername("@" + message.getFrom().getUserName());
-                userService.save(newUser);
-            }
+            String username = message.getFrom().getUserName() != null
+                ? "@" + message.getFrom().getUserName()
+                : null;
+            userService.createUser(userId, username);
             sendWelcomeMessage(chatId);
             return;
         }
@@ -184,11 +204,7 @@ public class KuponBot extends TelegramLongPollingBot {
         sendMessage.setText(welcomeText);
         sendMessage.setReplyMarkup(createLanguageKeyboard());
         
-        try {
-            execute(sendMessage);
-        } catch (TelegramApiException e) {
-            log.error("Error sending welcome message: ", e);
-        }
+        sendMessage(sendMessage);
     }
     
     private ReplyKeyboardMarkup createLanguageKeyboard() {
@@ -471,16 +487,15 @@ public class KuponBot extends TelegramLongPollingBot {
     }
     
     private boolean isValidBirthDate(String dateText) {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-            LocalDate birthDate = LocalDate.parse(dateText, formatter);
-            LocalDate now = LocalDate.now();
-            
-            // 10 yoshdan katta va 100 yoshdan kichik bo'lishi kerak
-            return birthDate.isBefore(now.minusYears(10)) && birthDate.isAfter(now.minusYears(100));
-        } catch (DateTimeParseException e) {
+        // Qat'iy format: 31.02.2000 kabi mavjud bo'lmagan sanalar rad etiladi
+        LocalDate birthDate = User.parseBirthDate(dateText);
+        if (birthDate == null) {
             return false;
         }
+        LocalDate now = LocalDate.now();
+        
+        // 10 yoshdan katta va 100 yoshdan kichik bo'lishi kerak
+        return birthDate.isBefore(now.minusYears(10)) && birthDate.isAfter(now.minusYears(100));
     }
     
     private void sendChannelSubscriptionMessage(Long chatId, String language) {
@@ -602,47 +617,10 @@ public class KuponBot extends TelegramLongPollingBot {
             
             if (checkChannelSubscription(user.getTelegramId())) {
                 // Obuna tasdiqlandi - ro'yxatdan o'tish yakunlandi
-                user.setState(User.UserState.REGISTERED);
-                userService.save(user);
+                userService.completeRegistration(user);
                 
-                String successMessage = getLocalizedMessage(user.getLanguage(),
-                    String.format(
-                        "🎉 Tabriklaymiz! AYSI OPTICS ga ro'yxatdan o'tish muvaffaqiyatli yakunlandi!\n\n" +
-                        "👤 Ism: %s\n" +
-                        "👤 Familiya: %s\n" +
-                        "📱 Telefon: %s\n" +
-                        "🎂 Tug'ilgan sana: %s\n\n" +
-                        "Endi siz mahsulotlarimizni ko'rishingiz va buyurtma berishingiz mumkin!",
-                        user.getFirstName(), 
-                        user.getLastName(), 
-                        user.getPhoneNumber(),
-                        user.getBirthDate()
-                    ),
-                    String.format(
-                        "🎉 Табриклаймиз! AYSI OPTICS га рўйхатдан ўтиш муваффақиятли якунланди!\n\n" +
-                        "👤 Исм: %s\n" +
-                        "👤 Фамилия: %s\n" +
-                        "📱 Телефон: %s\n" +
-                        "🎂 Туғилган сана: %s\n\n" +
-                        "Энди сиз маҳсулотларимизни кўришингиз ва буюртма беришингиз мумкин!",
-                        user.getFirstName(), 
-                        user.getLastName(), 
-                        user.getPhoneNumber(),
-                        user.getBirthDate()
-                    ),
-                    String.format(
-                        "🎉 Поздравляем! Регистрация в AYSI OPTICS успешно завершена!\n\n" +
-                        "👤 Имя: %s\n" +
-                        "👤 Фамилия: %s\n" +
-                        "📱 Телефон: %s\n" +
-                        "🎂 Дата рождения: %s\n\n" +
-                        "Теперь вы можете просматривать наши товары и делать заказы!",
-                        user.getFirstName(), 
-                        user.getLastName(), 
-                        user.getPhoneNumber(),
-                        user.getBirthDate()
-                    )
-                );
+                String successMessage = messageTemplates.render("registration.completed", user.getLanguage(),
+                    user.getFirstName(), user.getLastName(), user.getPhoneNumber(), user.getBirthDate());
                 
                 SendMessage sendMessage = new SendMessage();
                 sendMessage.setChatId(chatId);
@@ -675,20 +653,20 @@ public class KuponBot extends TelegramLongPollingBot {
     }
     
     private boolean checkChannelSubscription(Long userId) {
-        try {
-            GetChatMember getChatMember = new GetChatMember();
-            getChatMember.setChatId(channelId);
-            getChatMember.setUserId(userId);
-            
-            ChatMember chatMember = execute(getChatMember);
-            String status = chatMember.getStatus();
-            
-            // Obuna bo'lgan holatlar: "member", "administrator", "creator"
-            return "member".equals(status) || "administrator".equals(status) || "creator".equals(status);
-        } catch (TelegramApiException e) {
-            log.error("Error checking channel subscription for user {}: ", userId, e);
-            return false;
-        }
+        // Natija qisqa muddat keshlanadi, tugmani ketma-ket bosish API kvotasini yemaydi
+        return subscriptionCache.isSubscribed(userId, this::fetchChannelSubscription);
+    }
+    
+    private boolean fetchChannelSubscription(Long userId) throws TelegramApiException {
+        GetChatMember getChatMember = new GetChatMember();
+        getChatMember.setChatId(channelId);
+        getChatMember.setUserId(userId);
+        
+        ChatMember chatMember = execute(getChatMember);
+        String status = chatMember.getStatus();
+        
+        // Obuna bo'lgan holatlar: "member", "administrator", "creator"
+        return "member".equals(status) || "administrator".equals(status) || "creator".equals(status);
     }
     
     private ReplyKeyboardMarkup createMainMenuKeyboard(String language) {
@@ -841,103 +819,33 @@ public class KuponBot extends TelegramLongPollingBot {
         // Keshbek statistikasini olish
         CashbackService.UserCashbackStats cashbackStats = cashbackService.getUserCashbackStats(user);
         
-        String profileMessage;
-        switch (user.getLanguage()) {
-            case "uz_cyrl" -> profileMessage = String.format(
-                "👤 Сизнинг профилингиз:\n\n" +
-                "📝 Исм: %s\n" +
-                "📝 Фамилия: %s\n" +
-                "📱 Телефон: %s\n" +
-                "👤 Username: %s\n" +
-                "🎂 Туғилган сана: %s\n\n" +
-                "💰 Кешбек маълумотлари:\n" +
-                "💳 Жорий баланс: %s сўм\n" +
-                "➕ Жами олинган: %s сўм\n" +
-                "➖ Жами ишлатилган: %s сўм\n\n" +
-                "🎟️ Жами ваучерлар: %d\n" +
-                "✅ Фаол ваучерлар: %d\n" +
-                "✅ Ишлатилган ваучерлар: %d\n" +
-                "📅 Рўйхатдан ўтган: %s",
-                user.getFirstName(),
-                user.getLastName(),
-                user.getPhoneNumber(),
-                user.getTelegramUsername() != null ? user.getTelegramUsername() : "Username йўқ",
-                user.getBirthDate() != null ? user.getBirthDate() : "Киритилмаган",
-                String.format("%,d", cashbackStats.getCurrentBalance()),
-                String.format("%,d", cashbackStats.getTotalEarned()),
-                String.format("%,d", cashbackStats.getTotalUsed()),
-                userVouchers.size(),
-                (int) activeVouchers,
-                (int) usedVouchers,
-                user.getCreatedAt().toLocalDate()
-            );
-            case "ru" -> profileMessage = String.format(
-                "👤 Ваш профиль:\n\n" +
-                "📝 Имя: %s\n" +
-                "📝 Фамилия: %s\n" +
-                "📱 Телефон: %s\n" +
-                "👤 Username: %s\n" +
-                "🎂 Дата рождения: %s\n\n" +
-                "💰 Информация о кешбэке:\n" +
-                "💳 Текущий баланс: %s сум\n" +
-                "➕ Всего начислено: %s сум\n" +
-                "➖ Всего использовано: %s сум\n\n" +
-                "🎟️ Всего ваучеров: %d\n" +
-                "✅ Активных ваучеров: %d\n" +
-                "✅ Использованных ваучеров: %d\n" +
-                "📅 Зарегистрирован: %s",
-                user.getFirstName(),
-                user.getLastName(),
-                user.getPhoneNumber(),
-                user.getTelegramUsername() != null ? user.getTelegramUsername() : "Username нет",
-                user.getBirthDate() != null ? user.getBirthDate() : "Не указано",
-                String.format("%,d", cashbackStats.getCurrentBalance()),
-                String.format("%,d", cashbackStats.getTotalEarned()),
-                String.format("%,d", cashbackStats.getTotalUsed()),
-                userVouchers.size(),
-                (int) activeVouchers,
-                (int) usedVouchers,
-                user.getCreatedAt().toLocalDate()
-            );
-            default -> profileMessage = String.format(
-                "👤 Sizning profilingiz:\n\n" +
-                "📝 Ism: %s\n" +
-                "📝 Familiya: %s\n" +
-                "📱 Telefon: %s\n" +
-                "👤 Username: %s\n" +
-                "🎂 Tug'ilgan sana: %s\n\n" +
-                "💰 Keshbek ma'lumotlari:\n" +
-                "💳 Joriy balans: %s so'm\n" +
-                "➕ Jami olingan: %s so'm\n" +
-                "➖ Jami ishlatilgan: %s so'm\n\n" +
-                "🎟️ Jami voucherlar: %d\n" +
-                "✅ Faol voucherlar: %d\n" +
-                "✅ Ishlatilgan voucherlar: %d\n" +
-                "📅 Ro'yxatdan o'tgan: %s",
-                user.getFirstName(),
-                user.getLastName(),
-                user.getPhoneNumber(),
-                user.getTelegramUsername() != null ? user.getTelegramUsername() : "Username yo'q",
-                user.getBirthDate() != null ? user.getBirthDate() : "Kiritilmagan",
-                String.format("%,d", cashbackStats.getCurrentBalance()),
-                String.format("%,d", cashbackStats.getTotalEarned()),
-                String.format("%,d", cashbackStats.getTotalUsed()),
-                userVouchers.size(),
-                (int) activeVouchers,
-                (int) usedVouchers,
-                user.getCreatedAt().toLocalDate()
-            );
-        }
+        String language = user.getLanguage();
+        String profileMessage = messageTemplates.render("profile.summary", language,
+            user.getFirstName(),
+            user.getLastName(),
+            user.getPhoneNumber(),
+            user.getTelegramUsername() != null
+                ? user.getTelegramUsername() : messageTemplates.render("profile.username.none", language),
+            user.getBirthDate() != null
+                ? user.getBirthDate() : messageTemplates.render("profile.birth.date.none", language),
+            cashbackStats.getCurrentBalance(),
+            cashbackStats.getTotalEarned(),
+            cashbackStats.getTotalUsed(),
+            userVouchers.size(),
+            activeVouchers,
+            usedVouchers,
+            user.getCreatedAt().toLocalDate()
+        );
         
         // Agar faol voucherlar bo'lsa, ularni alohida ko'rsatish
         if (activeVouchers > 0) {
-            String voucherDetails = getActiveVoucherDetails(userVouchers, user.getLanguage());
+            String voucherDetails = getActiveVoucherDetails(userVouchers, language);
             profileMessage += "\n\n" + voucherDetails;
         }
         
         // Agar ishlatilgan voucherlar bo'lsa, ularni ham ko'rsatish
         if (usedVouchers > 0) {
-            String usedVoucherDetails = getUsedVoucherDetails(userVouchers, user.getLanguage());
+            String usedVoucherDetails = getUsedVoucherDetails(userVouchers, language);
             profileMessage += "\n\n" + usedVoucherDetails;
         }
         
@@ -977,22 +885,12 @@ public class KuponBot extends TelegramLongPollingBot {
                 };
                 
                 long daysLeft = voucher.getDaysUntilExpiry();
-                String expiryText = switch (language) {
-                    case "uz_cyrl" -> daysLeft > 0 ? 
-                        String.format("⏰ %d кун қолди", daysLeft) : "⚠️ Бугун тугайди";
-                    case "ru" -> daysLeft > 0 ? 
-                        String.format("⏰ %d дней осталось", daysLeft) : "⚠️ Истекает сегодня";
-                    default -> daysLeft > 0 ? 
-                        String.format("⏰ %d kun qoldi", daysLeft) : "⚠️ Bugun tugaydi";
-                };
+                String expiryText = daysLeft > 0
+                    ? messageTemplates.render("profile.voucher.days.left", language, daysLeft)
+                    : messageTemplates.render("profile.voucher.expires.today", language);
                 
-                details.append(String.format(
-                    "\n• %s\n  💰 %,d so'm\n  🔑 %s\n  %s\n",
-                    typeText,
-                    voucher.getAmount(),
-                    voucher.getCode().toUpperCase(),
-                    expiryText
-                ));
+                details.append(messageTemplates.render("profile.voucher.line", language,
+                    typeText, voucher.getAmount(), voucher.getCode().toUpperCase(), expiryText));
             });
         
         return details.toString();
@@ -1036,13 +934,8 @@ public class KuponBot extends TelegramLongPollingBot {
                     default -> "✅ Ishlatilgan: " + voucher.getUsedAt().toLocalDate();
                 };
                 
-                details.append(String.format(
-                    "\n• %s\n  💰 %,d so'm\n  🔑 %s\n  %s\n",
-                    typeText,
-                    voucher.getAmount(),
-                    voucher.getCode().toUpperCase(),
-                    usedDateText
-                ));
+                details.append(messageTemplates.render("profile.voucher.line", language,
+                    typeText, voucher.getAmount(), voucher.getCode().toUpperCase(), usedDateText));
             });
         
         return details.toString();
@@ -1226,20 +1119,7 @@ public class KuponBot extends TelegramLongPollingBot {
     }
     
     private void sendRegisteredUserWelcome(User user, Long chatId) {
-        String welcomeMessage = getLocalizedMessage(user.getLanguage(),
-            String.format(
-                "👋 Salom, %s!\n\nSiz allaqachon ro'yxatdan o'tgansiz. Menyudan kerakli bo'limni tanlang.",
-                user.getFirstName()
-            ),
-            String.format(
-                "👋 Салом, %s!\n\nСиз аллақачон рўйхатдан ўтгансиз. Менюдан керакли бўлимни танланг.",
-                user.getFirstName()
-            ),
-            String.format(
-                "👋 Привет, %s!\n\nВы уже зарегистрированы. Выберите нужный раздел из меню.",
-                user.getFirstName()
-            )
-        );
+        String welcomeMessage = messageTemplates.render("welcome.registered", user.getLanguage(), user.getFirstName());
         
         SendMessage sendMessage = new SendMessage();
         sendMessage.setChatId(chatId);
@@ -1316,18 +1196,14 @@ public class KuponBot extends TelegramLongPollingBot {
         markup.setKeyboard(keyboard);
         message.setReplyMarkup(markup);
         
-        try {
-            execute(message);
-            
-            // Menu tugmalarini qaytarish
-            SendMessage menuMessage = new SendMessage();
-            menuMessage.setChatId(chatId.toString());
-            menuMessage.setText("📱 Asosiy menyu:");
-            menuMessage.setReplyMarkup(createMainMenuKeyboard(user.getLanguage()));
-            execute(menuMessage);
-        } catch (TelegramApiException e) {
-            log.error("Error sending admin panel message: ", e);
-        }
+        sendMessage(message);
+        
+        // Menu tugmalarini qaytarish (chat navbati tartibni saqlaydi)
+        SendMessage menuMessage = new SendMessage();
+        menuMessage.setChatId(chatId.toString());
+        menuMessage.setText("📱 Asosiy menyu:");
+        menuMessage.setReplyMarkup(createMainMenuKeyboard(user.getLanguage()));
+        sendMessage(menuMessage);
     }
     
     private void handleTestNotificationCommand(User user, Long chatId) {
@@ -1519,76 +1395,8 @@ public class KuponBot extends TelegramLongPollingBot {
             return;
         }
         
-        String sendingMessage = getLocalizedMessage(user.getLanguage(),
-            "📤 Xabar barcha foydalanuvchilarga yuborilmoqda...",
-            "📤 Хабар барча фойдаланувчиларга юборилмоқда...",
-            "� Сообщение отправляется всем пользователям...");
-        sendMessage(chatId, sendingMessage);
-        
-        // Async ravishda yuborish
-        CompletableFuture.runAsync(() -> {
-            try {
-                BroadcastService.BroadcastResult result = broadcastService.sendBroadcastMessage(broadcastMessage);
-                
-                String resultMessage = getLocalizedMessage(user.getLanguage(),
-                    String.format(
-                        """
-                        ✅ Broadcast xabar yuborildi!
-                        
-                        📊 Natijalar:
-                        👥 Jami foydalanuvchilar: %d
-                        ✅ Muvaffaqiyatli: %d
-                        ❌ Xatolik: %d
-                        � Muvaffaqiyat darajasi: %.1f%%
-                        """,
-                        result.getTotalUsers(),
-                        result.getSuccessCount(),
-                        result.getFailureCount(),
-                        result.getSuccessRate()
-                    ),
-                    String.format(
-                        """
-                        ✅ Broadcast хабар юборилди!
-                        
-                        📊 Натижалар:
-                        👥 Жами фойдаланувчилар: %d
-                        ✅ Муваффақиятли: %d
-                        ❌ Хатолик: %d
-                        📈 Муваффақият даражаси: %.1f%%
-                        """,
-                        result.getTotalUsers(),
-                        result.getSuccessCount(),
-                        result.getFailureCount(),
-                        result.getSuccessRate()
-                    ),
-                    String.format(
-                        """
-                        ✅ Рассылка отправлена!
-                        
-                        📊 Результаты:
-                        👥 Всего пользователей: %d
-                        ✅ Успешно: %d
-                        ❌ Ошибок: %d
-                        📈 Процент успеха: %.1f%%
-                        """,
-                        result.getTotalUsers(),
-                        result.getSuccessCount(),
-                        result.getFailureCount(),
-                        result.getSuccessRate()
-                    )
-                );
-                
-                sendMessage(chatId, resultMessage);
-                
-            } catch (Exception e) {
-                log.error("Error in broadcast command: ", e);
-                String errorMessage = getLocalizedMessage(user.getLanguage(),
-                    "❌ Xabar yuborishda xatolik yuz berdi: " + e.getMessage(),
-                    "❌ Хабар юборишда хатолик юз берди: " + e.getMessage(),
-                    "❌ Ошибка при отправке сообщения: " + e.getMessage());
-                sendMessage(chatId, errorMessage);
-            }
-        });
+        BroadcastJob job = broadcastService.startBroadcast(broadcastMessage, user.getTelegramId());
+        trackBroadcastProgress(job.getId(), chatId, user.getLanguage());
     }
     
     private void forwardMessageToAdmin(Message message, User user) {
@@ -1662,11 +1470,12 @@ public class KuponBot extends TelegramLongPollingBot {
     }
     
     private void sendMessage(SendMessage sendMessage) {
-        try {
-            execute(sendMessage);
-        } catch (TelegramApiException e) {
-            log.error("Error sending message: ", e);
-        }
+        sendGateway.send(sendMessage, TelegramSendGateway.Priority.INTERACTIVE)
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    log.error("Error sending message to chat {}: {}", sendMessage.getChatId(), error.getMessage());
+                }
+            });
     }
     
     // ========== VIDEO/RASM BROADCAST METODLARI ==========
@@ -1685,8 +1494,7 @@ public class KuponBot extends TelegramLongPollingBot {
         log.info("Admin {} sent media for broadcast", user.getTelegramId());
         
         // Xabarni saqlash
-        pendingBroadcastMessage = message;
-        pendingBroadcastAdminId = chatId;
+        pendingBroadcastMessages.put(chatId, message);
         
         // Tasdiqlash tugmasini ko'rsatish
         String confirmText = getLocalizedMessage(user.getLanguage(),
@@ -1734,7 +1542,8 @@ public class KuponBot extends TelegramLongPollingBot {
             log.error("Error answering callback: ", e);
         }
         
-        if (pendingBroadcastMessage == null) {
+        Message messageToSend = pendingBroadcastMessages.remove(chatId);
+        if (messageToSend == null) {
             String errorMsg = getLocalizedMessage(user.getLanguage(),
                 "❌ Xatolik: Yuborish uchun xabar topilmadi.",
                 "❌ Хатолик: Юбориш учун хабар топилмади.",
@@ -1743,74 +1552,76 @@ public class KuponBot extends TelegramLongPollingBot {
             return;
         }
         
-        String sendingMsg = getLocalizedMessage(user.getLanguage(),
-            "📤 Xabar barcha foydalanuvchilarga yuborilmoqda...",
-            "📤 Хабар барча фойдаланувчиларга юборилмоқда...",
-            "📤 Сообщение отправляется всем пользователям...");
-        sendMessage(chatId, sendingMsg);
-        
-        // Async ravishda yuborish
-        Message messageToSend = pendingBroadcastMessage;
-        KuponBot botInstance = this;
-        CompletableFuture.runAsync(() -> {
-            try {
-                BroadcastService.BroadcastResult result = 
-                    broadcastService.sendMediaBroadcast(messageToSend, botInstance);
-                
-                String resultMsg = getLocalizedMessage(user.getLanguage(),
-                    String.format(
-                        "✅ Broadcast yuborildi!\n\n" +
-                        "📊 Natijalar:\n" +
-                        "👥 Jami: %d\n" +
-                        "✅ Muvaffaqiyatli: %d\n" +
-                        "❌ Xatolik: %d\n" +
-                        "📈 Muvaffaqiyat: %.1f%%",
-                        result.getTotalUsers(),
-                        result.getSuccessCount(),
-                        result.getFailureCount(),
-                        result.getSuccessRate()
-                    ),
-                    String.format(
-                        "✅ Broadcast юборилди!\n\n" +
-                        "📊 Натижалар:\n" +
-                        "👥 Жами: %d\n" +
-                        "✅ Муваффақиятли: %d\n" +
-                        "❌ Хатолик: %d\n" +
-                        "📈 Муваффақият: %.1f%%",
-                        result.getTotalUsers(),
-                        result.getSuccessCount(),
-                        result.getFailureCount(),
-                        result.getSuccessRate()
-                    ),
-                    String.format(
-                        "✅ Рассылка отправлена!\n\n" +
-                        "📊 Результаты:\n" +
-                        "👥 Всего: %d\n" +
-                        "✅ Успешно: %d\n" +
-                        "❌ Ошибок: %d\n" +
-                        "📈 Процент успеха: %.1f%%",
-                        result.getTotalUsers(),
-                        result.getSuccessCount(),
-                        result.getFailureCount(),
-                        result.getSuccessRate()
-                    )
-                );
-                
-                sendMessage(chatId, resultMsg);
-                
-            } catch (Exception e) {
-                log.error("Error in media broadcast: ", e);
-                String errorMsg = getLocalizedMessage(user.getLanguage(),
-                    "❌ Xatolik: " + e.getMessage(),
-                    "❌ Хатолик: " + e.getMessage(),
-                    "❌ Ошибка: " + e.getMessage());
-                sendMessage(chatId, errorMsg);
-            }
-        });
-        
-        // Pending message ni tozalash
-        pendingBroadcastMessage = null;
-        pendingBroadcastAdminId = null;
+        BroadcastJob job = broadcastService.startMediaBroadcast(messageToSend);
+        trackBroadcastProgress(job.getId(), chatId, user.getLanguage());
+    }
+    
+    /**
+     * Broadcast holati haqida bitta xabar yuboradi va vazifa davomida uni tahrirlab boradi.
+     */
+    private void trackBroadcastProgress(Long jobId, Long chatId, String language) {
+        String initialText = formatBroadcastProgress(language, broadcastJobService.getProgress(jobId).orElseThrow());
+        SendMessage progressMessage = new SendMessage();
+        progressMessage.setChatId(chatId);
+        progressMessage.setText(initialText);
+        
+        sendGateway.send(progressMessage, TelegramSendGateway.Priority.INTERACTIVE)
+            .thenAccept(sent -> {
+                Integer messageId = sent.getMessageId();
+                AtomicReference<String> lastText = new AtomicReference<>(initialText);
+                Consumer<BroadcastProgressDto> listener = progress -> {
+                    String text = progress.finished()
+                        ? formatBroadcastResult(language, progress)
+                        : formatBroadcastProgress(language, progress);
+                    // Matn o'zgarmagan bo'lsa Telegram xatolik qaytaradi
+                    if (text.equals(lastText.getAndSet(text))) {
+                        return;
+                    }
+                    EditMessageText edit = new EditMessageText();
+                    edit.setChatId(chatId);
+                    edit.setMessageId(messageId);
+                    edit.setText(text);
+                    sendGateway.send(edit, chatId.toString(), TelegramSendGateway.Priority.NOTIFICATION)
+                        .exceptionally(error -> {
+                            log.warn("Could not update broadcast progress message: {}", error.getMessage());
+                            return null;
+                        });
+                };
+                // Vazifa xabar yuborilguncha tugagan bo'lsa listener ulanmaydi - yakuniy holat darhol ko'rsatiladi
+                if (!broadcastJobService.addProgressListener(jobId, listener)) {
+                    broadcastJobService.getProgress(jobId).ifPresent(listener);
+                }
+            })
+            .exceptionally(error -> {
+                log.error("Error sending broadcast progress message: {}", error.getMessage());
+                return null;
+            });
+    }
+    
+    private String formatBroadcastProgress(String language, BroadcastProgressDto progress) {
+        String eta = progress.etaSeconds() != null ? formatDuration(progress.etaSeconds()) : "—";
+        return messageTemplates.render("broadcast.progress", language,
+            progress.sent(), progress.failed(), progress.remaining(), progress.totalRecipients(),
+            progress.ratePerSecond(), eta);
+    }
+    
+    private String formatBroadcastResult(String language, BroadcastProgressDto progress) {
+        int total = progress.sent() + progress.failed();
+        double successRate = total > 0 ? (double) progress.sent() / total * 100 : 0;
+        String headerKey = switch (progress.status()) {
+            case "CANCELLED" -> "broadcast.result.cancelled";
+            case "FAILED" -> "broadcast.result.failed";
+            default -> "broadcast.result.completed";
+        };
+        return messageTemplates.render(headerKey, language) + "\n\n"
+            + messageTemplates.render("broadcast.result", language, total, progress.sent(), progress.failed(), successRate);
+    }
+    
+    private String formatDuration(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
     }
     
     private void handleBroadcastCancellation(CallbackQuery callbackQuery, User user, Long chatId) {
@@ -1823,8 +1634,7 @@ public class KuponBot extends TelegramLongPollingBot {
             log.error("Error answering callback: ", e);
         }
         
-        pendingBroadcastMessage = null;
-        pendingBroadcastAdminId = null;
+        pendingBroadcastMessages.remove(chatId);
         
         String cancelMsg = getLocalizedMessage(user.getLanguage(),
             "❌ Broadcast bekor qilindi.",
@@ -1911,61 +1721,15 @@ public class KuponBot extends TelegramLongPollingBot {
             boolean success = broadcastService.sendSingleMessage(targetUserId, messageText);
             
             if (success) {
-                String successMessage = getLocalizedMessage(user.getLanguage(),
-                    String.format(
-                        """
-                        ✅ Xabar yuborildi!
-                        
-                        👤 Foydalanuvchi: %s %s
-                        👤 Username: %s
-                        📱 Telefon: %s
-                        🆔 Telegram ID: %d
-                        
-                        💬 Xabar: %s
-                        """,
-                        targetUser.getFirstName(),
-                        targetUser.getLastName(),
-                        targetUser.getTelegramUsername() != null ? targetUser.getTelegramUsername() : "Yo'q",
-                        targetUser.getPhoneNumber(),
-                        targetUserId,
-                        messageText.length() > 100 ? messageText.substring(0, 100) + "..." : messageText
-                    ),
-                    String.format(
-                        """
-                        ✅ Хабар юборилди!
-                        
-                        👤 Фойдаланувчи: %s %s
-                        👤 Username: %s
-                        📱 Телефон: %s
-                        🆔 Telegram ID: %d
-                        
-                        💬 Хабар: %s
-                        """,
-                        targetUser.getFirstName(),
-                        targetUser.getLastName(),
-                        targetUser.getTelegramUsername() != null ? targetUser.getTelegramUsername() : "Йўқ",
-                        targetUser.getPhoneNumber(),
-                        targetUserId,
-                        messageText.length() > 100 ? messageText.substring(0, 100) + "..." : messageText
-                    ),
-                    String.format(
-                        """
-                        ✅ Сообщение отправлено!
-                        
-                        👤 Пользователь: %s %s
-                        👤 Username: %s
-                        📱 Телефон: %s
-                        🆔 Telegram ID: %d
-                        
-                        💬 Сообщение: %s
-                        """,
-                        targetUser.getFirstName(),
-                        targetUser.getLastName(),
-                        targetUser.getTelegramUsername() != null ? targetUser.getTelegramUsername() : "Нет",
-                        targetUser.getPhoneNumber(),
-                        targetUserId,
-                        messageText.length() > 100 ? messageText.substring(0, 100) + "..." : messageText
-                    )
+                String successMessage = messageTemplates.render("admin.message.sent", user.getLanguage(),
+                    targetUser.getFirstName(),
+                    targetUser.getLastName(),
+                    targetUser.getTelegramUsername() != null
+                        ? targetUser.getTelegramUsername()
+                        : messageTemplates.render("admin.message.username.none", user.getLanguage()),
+                    targetUser.getPhoneNumber(),
+                    targetUserId,
+                    messageText.length() > 100 ? messageText.substring(0, 100) + "..." : messageText
                 );
                 sendMessage(chatId, successMessage);
             } else {
@@ -2024,11 +1788,7 @@ public class KuponBot extends TelegramLongPollingBot {
         sendMessage.setText(message);
         sendMessage.setReplyMarkup(createAppointmentConfirmationKeyboard(language));
         
-        try {
-            execute(sendMessage);
-        } catch (TelegramApiException e) {
-            log.error("Error sending appointment request: ", e);
-        }
+        sendMessage(sendMessage);
     }
     
     private InlineKeyboardMarkup createAppointmentConfirmationKeyboard(String language) {
@@ -2149,15 +1909,17 @@ public class KuponBot extends TelegramLongPollingBot {
         );
         
         for (String adminId : adminIds) {
-            try {
-                SendMessage sendMessage = new SendMessage();
-                sendMessage.setChatId(adminId);
-                sendMessage.setText(notification);
-                execute(sendMessage);
-                log.info("Appointment notification sent to admin: {}", adminId);
-            } catch (TelegramApiException e) {
-                log.error("Error sending appointment notification to admin {}: ", adminId, e);
-            }
+            SendMessage sendMessage = new SendMessage();
+            sendMessage.setChatId(adminId);
+            sendMessage.setText(notification);
+            sendGateway.send(sendMessage, TelegramSendGateway.Priority.NOTIFICATION)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        log.info("Appointment notification sent to admin: {}", adminId);
+                    } else {
+                        log.error("Error sending appointment notification to admin {}: {}", adminId, error.getMessage());
+                    }
+                });
         }
     }
 
@@ -0,0 +1,403 @@
+package uz.kuponbot.kupon.bot;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.CopyMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.MessageId;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Barcha chiquvchi Telegram xabarlari uchun yagona shlyuz.
+ * <ul>
+ *   <li>global token bucket (default 30 xabar/s)</li>
+ *   <li>har bir chat uchun limit (default 1 xabar/s, kichik burst bilan), chat ichida tartib saqlanadi</li>
+ *   <li>ustuvorlik: INTERACTIVE &gt; NOTIFICATION &gt; BROADCAST</li>
+ *   <li>429 javobida retry_after bo'yicha kutib qayta yuboradi</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class TelegramSendGateway {
+
+    public enum Priority {
+        INTERACTIVE,   // Foydalanuvchiga javoblar
+        NOTIFICATION,  // Rejalashtirilgan eslatmalar, admin xabarlari
+        BROADCAST      // Ommaviy xabarlar
+    }
+
+    private final ApplicationContext applicationContext;
+    private final double globalRatePerSecond;
+    private final double chatRatePerSecond;
+    private final int chatBurst;
+    private final int senderThreads;
+    private final int maxRetries;
+
+    private final PriorityBlockingQueue<SendTask<?>> readyQueue = new PriorityBlockingQueue<>(64, SendTask.ORDER);
+    private final Map<String, ChatLane> lanes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private volatile long pausedUntilNanos = System.nanoTime();
+    private volatile boolean running;
+
+    private TokenBucket globalBucket;
+    private ScheduledExecutorService timer;
+    private ExecutorService senders;
+    private Thread dispatcherThread;
+    private volatile AbsSender sender;
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder throttledCount = new LongAdder();
+
+    public TelegramSendGateway(
+            ApplicationContext applicationContext,
+            @Value("${telegram.send.global-rate-per-second:30}") double globalRatePerSecond,
+            @Value("${telegram.send.chat-rate-per-second:1}") double chatRatePerSecond,
+            @Value("${telegram.send.chat-burst:3}") int chatBurst,
+            @Value("${telegram.send.sender-threads:8}") int senderThreads,
+            @Value("${telegram.send.max-retries:5}") int maxRetries) {
+        this.applicationContext = applicationContext;
+        this.globalRatePerSecond = globalRatePerSecond;
+        this.chatRatePerSecond = chatRatePerSecond;
+        this.chatBurst = Math.max(1, chatBurst);
+        this.senderThreads = Math.max(1, senderThreads);
+        this.maxRetries = maxRetries;
+    }
+
+    @PostConstruct
+    public void start() {
+        globalBucket = new TokenBucket(globalRatePerSecond, globalRatePerSecond);
+        timer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "tg-send-timer"));
+        AtomicInteger threadIndex = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads,
+            r -> daemon(r, "tg-sender-" + threadIndex.getAndIncrement()));
+        running = true;
+
+        dispatcherThread = daemon(this::runDispatcher, "tg-send-dispatcher");
+        dispatcherThread.start();
+
+        // Bo'sh chat navbatlarini vaqti-vaqti bilan tozalash
+        timer.scheduleWithFixedDelay(this::pruneIdleLanes, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public CompletableFuture<Message> send(SendMessage sendMessage, Priority priority) {
+        return send(sendMessage, sendMessage.getChatId(), priority);
+    }
+
+    public CompletableFuture<MessageId> send(CopyMessage copyMessage, Priority priority) {
+        return send(copyMessage, copyMessage.getChatId(), priority);
+    }
+
+    public CompletableFuture<Message> sendText(Long chatId, String text, Priority priority) {
+        SendMessage sendMessage = new SendMessage();
+        sendMessage.setChatId(chatId);
+        sendMessage.setText(text);
+        return send(sendMessage, priority);
+    }
+
+    /**
+     * Metodni navbatga qo'yish. Natija (yoki yakuniy xatolik) future orqali qaytadi.
+     */
+    public <T extends Serializable> CompletableFuture<T> send(BotApiMethod<T> method, String chatId, Priority priority) {
+        SendTask<T> task = new SendTask<>(method, chatId, priority, sequence.incrementAndGet());
+        if (!running) {
+            task.future.completeExceptionally(new IllegalStateException("Send gateway is not running"));
+            return task.future;
+        }
+
+        pendingCount.incrementAndGet();
+        while (true) {
+            ChatLane lane = lanes.computeIfAbsent(chatId, id -> new ChatLane(chatRatePerSecond, chatBurst));
+            synchronized (lane) {
+                if (lane.retired) {
+                    continue;
+                }
+                lane.pending.add(task);
+                if (!lane.active) {
+                    lane.active = true;
+                    scheduleNext(lane);
+                }
+            }
+            return task.future;
+        }
+    }
+
+    // lane lock ostida chaqiriladi
+    private void scheduleNext(ChatLane lane) {
+        long now = System.nanoTime();
+        long waitNanos = lane.bucket.nanosUntilAvailable(now);
+        if (waitNanos <= 0) {
+            lane.bucket.take(now);
+            readyQueue.add(lane.pending.poll());
+        } else {
+            timer.schedule(() -> promote(lane), waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void promote(ChatLane lane) {
+        synchronized (lane) {
+            if (!lane.pending.isEmpty()) {
+                scheduleNext(lane);
+            } else {
+                lane.active = false;
+            }
+        }
+    }
+
+    private void runDispatcher() {
+        while (running) {
+            try {
+                SendTask<?> task = readyQueue.poll(500, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                acquireGlobalPermit();
+                senders.execute(() -> execute(task));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void acquireGlobalPermit() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            long pause = pausedUntilNanos - now;
+            if (pause > 0) {
+                TimeUnit.NANOSECONDS.sleep(pause);
+                continue;
+            }
+            long waitNanos = globalBucket.nanosUntilAvailable(now);
+            if (waitNanos <= 0) {
+                globalBucket.take(now);
+                return;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private <T extends Serializable> void execute(SendTask<T> task) {
+        ChatLane lane = lanes.get(task.chatId);
+        try {
+            T result = sender().execute(task.method);
+            sentCount.increment();
+            complete(task, lane);
+            task.future.complete(result);
+        } catch (TelegramApiRequestException e) {
+            if (isTooManyRequests(e) && task.attempts < maxRetries) {
+                retryLater(task, lane, retryAfterSeconds(e));
+                return;
+            }
+            fail(task, lane, e);
+        } catch (TelegramApiException | RuntimeException e) {
+            fail(task, lane, e);
+        }
+    }
+
+    private boolean isTooManyRequests(TelegramApiRequestException e) {
+        return e.getErrorCode() != null && e.getErrorCode() == 429;
+    }
+
+    private int retryAfterSeconds(TelegramApiRequestException e) {
+        if (e.getParameters() != null && e.getParameters().getRetryAfter() != null) {
+            return Math.max(1, e.getParameters().getRetryAfter());
+        }
+        return 1;
+    }
+
+    private void retryLater(SendTask<?> task, ChatLane lane, int retryAfterSeconds) {
+        throttledCount.increment();
+        task.attempts++;
+        long delayNanos = TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+        // Telegram butun bot uchun cheklagan bo'lishi mumkin - hammasini to'xtatib turamiz
+        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + delayNanos);
+        log.warn("Telegram returned 429 for chat {}, retrying in {}s (attempt {})",
+            task.chatId, retryAfterSeconds, task.attempts);
+
+        synchronized (lane) {
+            // seq saqlanadi, shuning uchun xabar chat navbatida birinchi bo'lib qoladi
+            lane.pending.add(task);
+        }
+        timer.schedule(() -> promote(lane), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void fail(SendTask<?> task, ChatLane lane, Exception e) {
+        failedCount.increment();
+        complete(task, lane);
+        task.future.completeExceptionally(e);
+    }
+
+    private void complete(SendTask<?> task, ChatLane lane) {
+        pendingCount.decrementAndGet();
+        if (lane != null) {
+            promote(lane);
+        }
+    }
+
+    private void pruneIdleLanes() {
+        long now = System.nanoTime();
+        lanes.forEach((chatId, lane) -> {
+            synchronized (lane) {
+                if (!lane.active && lane.pending.isEmpty() && lane.bucket.isFull(now)) {
+                    lane.retired = true;
+                    lanes.remove(chatId, lane);
+                }
+            }
+        });
+    }
+
+    private AbsSender sender() {
+        AbsSender current = sender;
+        if (current == null) {
+            // Circular dependency'dan qochish uchun bot ApplicationContext orqali olinadi
+            current = applicationContext.getBean("kuponBot", AbsSender.class);
+            sender = current;
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+        }
+        if (senders != null) {
+            senders.shutdown();
+            try {
+                senders.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        if (pendingCount.get() > 0) {
+            log.warn("Send gateway stopped with {} unsent messages", pendingCount.get());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(
+            pendingCount.get(),
+            readyQueue.size(),
+            lanes.size(),
+            sentCount.sum(),
+            failedCount.sum(),
+            throttledCount.sum(),
+            Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime()))
+        );
+    }
+
+    private static final class SendTask<T extends Serializable> {
+        static final Comparator<SendTask<?>> ORDER = Comparator
+            .comparing((SendTask<?> t) -> t.priority)
+            .thenComparingLong(t -> t.seq);
+
+        final BotApiMethod<T> method;
+        final String chatId;
+        final Priority priority;
+        final long seq;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        int attempts;
+
+        SendTask(BotApiMethod<T> method, String chatId, Priority priority, long seq) {
+            this.method = method;
+            this.chatId = chatId;
+            this.priority = priority;
+            this.seq = seq;
+        }
+    }
+
+    private static final class ChatLane {
+        final PriorityQueue<SendTask<?>> pending = new PriorityQueue<>(SendTask.ORDER);
+        final TokenBucket bucket;
+        boolean active;
+        boolean retired;
+
+        ChatLane(double ratePerSecond, int burst) {
+            this.bucket = new TokenBucket(ratePerSecond, burst);
+        }
+    }
+
+    private static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, double capacity) {
+            this.ratePerNano = ratePerSecond / 1_000_000_000.0;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+        }
+
+        long nanosUntilAvailable(long now) {
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / ratePerNano);
+        }
+
+        void take(long now) {
+            refill(now);
+            tokens -= 1;
+        }
+
+        boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int pending;
+        private int readyQueue;
+        private int activeChats;
+        private long sent;
+        private long failed;
+        private long throttled;
+        private long pausedForMillis;
+    }
+}
@@ -0,0 +1,215 @@
+package uz.kuponbot.kupon.bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Telegram update'larini chat bo'yicha bo'lingan worker navbatlariga tarqatadi.
+ * Bitta chat ichida tartib saqlanadi, turli chatlar esa parallel ishlanadi.
+ */
+@Component
+@Slf4j
+public class UpdateDispatcher {
+
+    private final int workerCount;
+    private final int queueCapacity;
+    private final long offerTimeoutMs;
+
+    private final List<BlockingQueue<QueuedUpdate>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile Consumer<Update> handler;
+    private volatile boolean running;
+
+    // Metrikalar
+    private final LongAdder dispatchedCount = new LongAdder();
+    private final LongAdder processedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalHandlerNanos = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxHandlerNanos = new AtomicLong();
+
+    public UpdateDispatcher(
+            @Value("${telegram.bot.dispatcher.workers:8}") int workerCount,
+            @Value("${telegram.bot.dispatcher.queue-capacity:500}") int queueCapacity,
+            @Value("${telegram.bot.dispatcher.offer-timeout-ms:2000}") long offerTimeoutMs) {
+        this.workerCount = Math.max(1, workerCount);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+    }
+
+    /**
+     * Worker'larni ishga tushirish. Handler har bir update uchun worker thread'da chaqiriladi.
+     */
+    public synchronized void start(Consumer<Update> updateHandler) {
+        if (running) {
+            return;
+        }
+        this.handler = updateHandler;
+        this.running = true;
+
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<QueuedUpdate> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+
+            Thread worker = new Thread(() -> runWorker(queue), "bot-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        log.info("Update dispatcher started: {} workers, queue capacity {}", workerCount, queueCapacity);
+    }
+
+    /**
+     * Update'ni o'z chatining navbatiga qo'yish.
+     * Navbat to'lgan bo'lsa offerTimeoutMs gacha kutadi, keyin update tashlab yuboriladi.
+     */
+    public boolean dispatch(Update update) {
+        if (!running) {
+            log.warn("Update dispatcher is not running, handling update {} inline", update.getUpdateId());
+            handle(new QueuedUpdate(update, System.nanoTime()));
+            return true;
+        }
+
+        BlockingQueue<QueuedUpdate> queue = queues.get(shardOf(resolveChatId(update)));
+        try {
+            if (queue.offer(new QueuedUpdate(update, System.nanoTime()), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                dispatchedCount.increment();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        rejectedCount.increment();
+        log.error("Update queue is full, dropping update {}", update.getUpdateId());
+        return false;
+    }
+
+    private int shardOf(long chatId) {
+        return (int) Math.floorMod(chatId, (long) workerCount);
+    }
+
+    static long resolveChatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            if (update.getCallbackQuery().getMessage() != null) {
+                return update.getCallbackQuery().getMessage().getChatId();
+            }
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasMyChatMember()) {
+            return update.getMyChatMember().getChat().getId();
+        }
+        return 0L;
+    }
+
+    private void runWorker(BlockingQueue<QueuedUpdate> queue) {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedUpdate queued = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (queued != null) {
+                    handle(queued);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void handle(QueuedUpdate queued) {
+        long startedAt = System.nanoTime();
+        totalWaitNanos.add(startedAt - queued.enqueuedAt());
+        try {
+            handler.accept(queued.update());
+            processedCount.increment();
+        } catch (Exception e) {
+            failedCount.increment();
+            log.error("Unhandled error while processing update {}: ", queued.update().getUpdateId(), e);
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            totalHandlerNanos.add(elapsed);
+            maxHandlerNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        // Navbatdagi update'lar ishlanib bo'lishini kutish
+        for (Thread worker : workers) {
+            try {
+                worker.join(5000);
+                if (worker.isAlive()) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Update dispatcher stopped");
+    }
+
+    public Stats getStats() {
+        List<Integer> queueDepths = queues.stream().map(BlockingQueue::size).toList();
+        long handled = processedCount.sum() + failedCount.sum();
+        return new Stats(
+            workerCount,
+            queueCapacity,
+            queueDepths.stream().mapToInt(Integer::intValue).sum(),
+            queueDepths,
+            dispatchedCount.sum(),
+            processedCount.sum(),
+            failedCount.sum(),
+            rejectedCount.sum(),
+            handled > 0 ? totalHandlerNanos.sum() / handled / 1_000_000.0 : 0,
+            maxHandlerNanos.get() / 1_000_000.0,
+            handled > 0 ? totalWaitNanos.sum() / handled / 1_000_000.0 : 0
+        );
+    }
+
+    private record QueuedUpdate(Update update, long enqueuedAt) {
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int workers;
+        private int queueCapacity;
+        private int queueDepth;
+        private List<Integer> queueDepthPerWorker;
+        private long dispatched;
+        private long processed;
+        private long failed;
+        private long rejected;
+        private double avgHandlerMillis;
+        private double maxHandlerMillis;
+        private double avgQueueWaitMillis;
+    }
+}
@@ -18,4 +18,11 @@ public class AdminConfig {
     public Set<Long> getAdminIds() {
         return adminTelegramIds;
     }
+    
+    /**
+     * SQL "NOT IN" uchun: ro'yxat bo'sh bo'lsa hech kimga mos kelmaydigan qiymat qaytariladi
+     */
+    public Set<Long> getExcludedIds() {
+        return adminTelegramIds.isEmpty() ? Set.of(-1L) : adminTelegramIds;
+    }
 }
\ No newline at end of file
@@ -1,23 +1,63 @@
 package uz.kuponbot.kupon.config;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import uz.kuponbot.kupon.bot.KuponBot;
 
 @Configuration
 @RequiredArgsConstructor
+@Slf4j
 public class BotConfig {
-    
+
     private final KuponBot kuponBot;
-    
+
+    @Value("${telegram.bot.webhook.url:}")
+    private String webhookUrl;
+
+    @Value("${telegram.bot.webhook.path:/telegram/webhook}")
+    private String webhookPath;
+
+    @Value("${telegram.bot.webhook.secret-token:}")
+    private String webhookSecretToken;
+
+    @Value("${telegram.bot.webhook.max-connections:40}")
+    private Integer webhookMaxConnections;
+
+    // Long polling rejimi (default)
     @Bean
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "polling", matchIfMissing = true)
     public TelegramBotsApi telegramBotsApi() throws TelegramApiException {
         TelegramBotsApi api = new TelegramBotsApi(DefaultBotSession.class);
         api.registerBot(kuponBot);
         return api;
     }
-}
\ No newline at end of file
+
+    // Webhook rejimi: update'lar TelegramWebhookController orqali keladi
+    @Bean
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+    public ApplicationRunner telegramWebhookRegistrar() {
+        return args -> {
+            if (webhookUrl == null || webhookUrl.isBlank()) {
+                log.warn("Webhook mode is enabled but telegram.bot.webhook.url is empty, skipping setWebhook");
+                return;
+            }
+
+            // Secret bo'sh bo'lsa TelegramWebhookController ishga tushmaydi, shuning uchun bu yerda doim bor
+            SetWebhook setWebhook = new SetWebhook(webhookUrl.replaceAll("/+$", "") + webhookPath);
+            setWebhook.setMaxConnections(webhookMaxConnections);
+            setWebhook.setSecretToken(webhookSecretToken);
+
+            kuponBot.execute(setWebhook);
+            log.info("Telegram webhook registered: {}", setWebhook.getUrl());
+        };
+    }
+}
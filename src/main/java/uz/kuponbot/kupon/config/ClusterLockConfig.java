@@ -0,0 +1,14 @@
+package uz.kuponbot.kupon.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterLockConfig {
+    
+    // static - BeanPostProcessor boshqa bean'lardan oldin yaratilishi kerak
+    @Bean
+    public static ClusterLockPostProcessor clusterLockPostProcessor() {
+        return new ClusterLockPostProcessor();
+    }
+}
@@ -0,0 +1,71 @@
+package uz.kuponbot.kupon.config;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.service.ClusterLocked;
+import uz.kuponbot.kupon.service.JobLockService;
+
+/**
+ * @ClusterLocked metodli bean'larni proxy qiladi: metod faqat job lock olingandan keyin chaqiriladi.
+ * JobLockService birinchi chaqiruvda olinadi, shuning uchun post processor uni erta yaratib yubormaydi.
+ */
+@Slf4j
+public class ClusterLockPostProcessor extends AbstractAdvisingBeanPostProcessor implements BeanFactoryAware {
+    
+    private BeanFactory beanFactory;
+    private volatile JobLockService jobLockService;
+    
+    public ClusterLockPostProcessor() {
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+        this.advisor = new DefaultPointcutAdvisor(
+            new AnnotationMatchingPointcut(null, ClusterLocked.class, true),
+            (MethodInterceptor) this::invokeLocked);
+    }
+    
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+    
+    private Object invokeLocked(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (invocation.getThis() != null) {
+            method = AopUtils.getMostSpecificMethod(method, invocation.getThis().getClass());
+        }
+        ClusterLocked locked = AnnotationUtils.findAnnotation(method, ClusterLocked.class);
+        if (locked == null) {
+            return invocation.proceed();
+        }
+        
+        Optional<JobLockService.Lease> lease = getJobLockService().tryAcquire(locked.value(),
+            Duration.ofSeconds(locked.leaseSeconds()), Duration.ofSeconds(locked.minHoldSeconds()));
+        if (lease.isEmpty()) {
+            log.info("Skipping {}: job lock is held by another node", locked.value());
+            return null;
+        }
+        try (JobLockService.Lease held = lease.get()) {
+            return invocation.proceed();
+        }
+    }
+    
+    private JobLockService getJobLockService() {
+        if (jobLockService == null) {
+            jobLockService = beanFactory.getBean(JobLockService.class);
+        }
+        return jobLockService;
+    }
+}
@@ -0,0 +1,62 @@
+package uz.kuponbot.kupon.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.entity.Voucher;
+import uz.kuponbot.kupon.service.NotificationRule;
+import uz.kuponbot.kupon.service.NotificationRule.Slot;
+import uz.kuponbot.kupon.service.NotificationService;
+import uz.kuponbot.kupon.service.UserService;
+import uz.kuponbot.kupon.service.VoucherService;
+
+/**
+ * Kunlik mijoz eslatmalari. Yangi eslatma - bu yerga yangi NotificationRule bean qo'shish.
+ * Harid va ro'yxatdan o'tishdan N kun keyingi xabarlar bu yerda emas - ular scheduled_messages
+ * navbatiga hodisa paytida yoziladi (ScheduledMessageQueue, ScheduledMessageDispatcher).
+ */
+@Configuration
+public class NotificationRulesConfig {
+    
+    // Tug'ilgan kundan bir kun oldin eslatma
+    @Bean
+    public NotificationRule<User> birthdayReminderRule(UserService userService,
+                                                       NotificationService notificationService) {
+        return NotificationRule.of("birthday_reminder", Slot.EARLY,
+            (now, sink) -> userService.forEachRecipientWithBirthday(now.toLocalDate().plusDays(1), sink),
+            User::getId,
+            now -> String.valueOf(now.plusDays(1).getYear()),
+            notificationService::sendBirthdayReminderToUser);
+    }
+    
+    // Tug'ilgan kun voucheri
+    @Bean
+    public NotificationRule<User> birthdayVoucherRule(UserService userService,
+                                                      NotificationService notificationService) {
+        return NotificationRule.of("birthday_voucher", Slot.EARLY,
+            (now, sink) -> userService.forEachRecipientWithBirthday(now.toLocalDate(), sink),
+            User::getId,
+            now -> String.valueOf(now.getYear()),
+            notificationService::createBirthdayVoucherAndNotify);
+    }
+    
+    // Muddati tugayotgan voucherlar (avval eskilari expire qilinadi), kuniga bir marta
+    @Bean
+    public NotificationRule<Voucher> voucherReminderRule(VoucherService voucherService,
+                                                         NotificationService notificationService) {
+        return NotificationRule.of("voucher_reminder", Slot.EARLY,
+            (now, sink) -> {
+                voucherService.expireOldVouchers();
+                List<Voucher> due = voucherService.getVouchersNeedingReminder();
+                // Eslatma vaqti hammasiga bitta UPDATE bilan yoziladi; qayta yuborishdan ledger himoya qiladi
+                voucherService.markRemindersSent(due.stream().map(Voucher::getId).toList());
+                due.forEach(sink);
+            },
+            Voucher::getId,
+            now -> now.toLocalDate().toString(),
+            notificationService::sendVoucherReminderToUser);
+    }
+}
@@ -0,0 +1,39 @@
+package uz.kuponbot.kupon.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @Scheduled job'lar uchun alohida thread pool. Standart scheduler bitta thread'da ishlaydi,
+ * shuning uchun bir vaqtda boshlanadigan job'lar bir-birini kutib qolardi.
+ * Bir job'ning o'zi bilan ustma-ust ishlashidan JobRunRegistry himoya qiladi.
+ */
+@Configuration
+@Slf4j
+public class SchedulerConfig implements SchedulingConfigurer {
+    
+    @Value("${scheduler.pool-size:4}")
+    private int poolSize;
+    
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduler-");
+        scheduler.setErrorHandler(e -> log.error("Scheduled job failed: ", e));
+        // To'xtashda ishlayotgan job'ga tugash uchun vaqt (kutilayotgan cron triggerlar bekor qilinadi)
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+    
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(taskScheduler());
+    }
+}
@@ -1,10 +1,16 @@
 package uz.kuponbot.kupon.controller;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -16,26 +22,42 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.bot.ChannelSubscriptionCache;
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.bot.UpdateDispatcher;
 import uz.kuponbot.kupon.dto.AdminStatsDto;
+import uz.kuponbot.kupon.dto.BroadcastProgressDto;
 import uz.kuponbot.kupon.dto.OrderDto;
 import uz.kuponbot.kupon.dto.ProductDto;
 import uz.kuponbot.kupon.dto.UserDto;
 import uz.kuponbot.kupon.dto.VoucherDto;
+import uz.kuponbot.kupon.entity.BroadcastJob;
+import uz.kuponbot.kupon.entity.Cashback;
 import uz.kuponbot.kupon.entity.Coupon;
 import uz.kuponbot.kupon.entity.Order;
 import uz.kuponbot.kupon.entity.Product;
 import uz.kuponbot.kupon.entity.User;
 import uz.kuponbot.kupon.entity.Voucher;
+import uz.kuponbot.kupon.service.AdminStatsService;
+import uz.kuponbot.kupon.service.BroadcastJobService;
 import uz.kuponbot.kupon.service.BroadcastService;
+import uz.kuponbot.kupon.service.CashbackReconciliationService;
 import uz.kuponbot.kupon.service.CouponService;
 import uz.kuponbot.kupon.service.ExcelExportService;
+import uz.kuponbot.kupon.service.JobRunRegistry;
+import uz.kuponbot.kupon.service.NotificationOutbox;
+import uz.kuponbot.kupon.service.NotificationRuleEngine;
 import uz.kuponbot.kupon.service.NotificationService;
 import uz.kuponbot.kupon.service.OrderService;
 import uz.kuponbot.kupon.service.ProductService;
+import uz.kuponbot.kupon.service.PurchaseImportService;
+import uz.kuponbot.kupon.service.UserCache;
 import uz.kuponbot.kupon.service.UserService;
 import uz.kuponbot.kupon.service.VoucherService;
 
@@ -54,23 +76,40 @@ public class AdminController {
     private final VoucherService voucherService;
     private final uz.kuponbot.kupon.service.CashbackService cashbackService;
     private final OrderService orderService;
+    private final UpdateDispatcher updateDispatcher;
+    private final ChannelSubscriptionCache subscriptionCache;
+    private final TelegramSendGateway sendGateway;
+    private final UserCache userCache;
+    private final BroadcastJobService broadcastJobService;
+    private final AdminStatsService adminStatsService;
+    private final NotificationRuleEngine notificationRuleEngine;
+    private final JobRunRegistry jobRunRegistry;
+    private final NotificationOutbox notificationOutbox;
+    private final CashbackReconciliationService cashbackReconciliationService;
+    private final PurchaseImportService purchaseImportService;
+    
+    private static final long BROADCAST_SSE_TIMEOUT_MS = 60 * 60 * 1000L;
     
     @GetMapping("/stats")
     public ResponseEntity<AdminStatsDto> getStats() {
-        long totalUsers = userService.getTotalUsersCount();
-        long totalProducts = productService.getTotalProductsCount();
-        long totalVouchers = voucherService.getTotalVouchersCount();
-        
-        AdminStatsDto stats = new AdminStatsDto(
-            totalUsers,
-            totalProducts,
-            totalVouchers,
-            voucherService.getActiveVouchersCount(),
-            voucherService.getUsedVouchersCount(),
-            voucherService.getExpiredVouchersCount()
-        );
-        
-        return ResponseEntity.ok(stats);
+        // Xotiradagi snapshot - bazaga murojaat yo'q
+        return ResponseEntity.ok(adminStatsService.getSnapshot());
+    }
+    
+    @PostMapping("/stats/reconcile")
+    public ResponseEntity<AdminStatsDto> reconcileStats() {
+        adminStatsService.reconcile();
+        return ResponseEntity.ok(adminStatsService.getSnapshot());
+    }
+    
+    @GetMapping("/bot/metrics")
+    public ResponseEntity<Map<String, Object>> getBotMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("dispatcher", updateDispatcher.getStats());
+        metrics.put("userCache", userCache.getStats());
+        metrics.put("subscriptionCache", subscriptionCache.getStats());
+        metrics.put("sendGateway", sendGateway.getStats());
+        return ResponseEntity.ok(metrics);
     }
     
     @GetMapping("/users")
@@ -166,6 +205,24 @@ public class AdminController {
         return ResponseEntity.ok("Voucher reminder check completed!");
     }
     
+    @GetMapping("/jobs")
+    public ResponseEntity<List<JobRunRegistry.JobStatus>> getJobs() {
+        // Rejali job'lar: oxirgi ishga tushirishlar, davomiyligi va qayta ishlangan qatorlar
+        return ResponseEntity.ok(jobRunRegistry.getJobs());
+    }
+    
+    @GetMapping("/notification-rules")
+    public ResponseEntity<List<NotificationRuleEngine.RuleStats>> getNotificationRules() {
+        // Har qoida bo'yicha oxirgi ishga tushirish natijasi
+        return ResponseEntity.ok(notificationRuleEngine.getStats());
+    }
+    
+    @GetMapping("/outbox")
+    public ResponseEntity<NotificationOutbox.OutboxStats> getOutboxStats() {
+        // Yuborilmagan xabarlar soni va eng eskisining kutish vaqti (outbox lag)
+        return ResponseEntity.ok(notificationOutbox.getStats());
+    }
+    
     @GetMapping("/export-users")
     public ResponseEntity<byte[]> exportUsers() {
         try {
@@ -222,30 +279,78 @@ public class AdminController {
         };
     }
     
+    /**
+     * Broadcast vazifasini yaratadi va darhol jobId qaytaradi.
+     * Holatni /broadcast/{jobId} yoki /broadcast/{jobId}/events (SSE) orqali kuzatish mumkin.
+     */
     @PostMapping("/broadcast")
-    public ResponseEntity<BroadcastResponse> sendBroadcast(@RequestBody BroadcastRequest request) {
+    public ResponseEntity<BroadcastProgressDto> sendBroadcast(@RequestBody BroadcastRequest request) {
         try {
             if (request.getMessage() == null || request.getMessage().trim().isEmpty()) {
                 return ResponseEntity.badRequest().build();
             }
             
-            BroadcastService.BroadcastResult result = broadcastService.sendBroadcastMessage(request.getMessage());
-            
-            BroadcastResponse response = new BroadcastResponse(
-                result.getTotalUsers(),
-                result.getSuccessCount(),
-                result.getFailureCount(),
-                result.getSuccessRate()
-            );
-            
-            return ResponseEntity.ok(response);
+            BroadcastJob job = broadcastService.startBroadcast(request.getMessage(), null);
+            return ResponseEntity.accepted().body(broadcastJobService.getProgress(job.getId()).orElseThrow());
             
         } catch (Exception e) {
-            log.error("Error sending broadcast message: ", e);
+            log.error("Error starting broadcast: ", e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    @GetMapping("/broadcast/jobs")
+    public ResponseEntity<List<BroadcastProgressDto>> getBroadcastJobs() {
+        return ResponseEntity.ok(broadcastJobService.getRecentJobs());
+    }
+    
+    @GetMapping("/broadcast/{jobId}")
+    public ResponseEntity<BroadcastProgressDto> getBroadcastProgress(@PathVariable Long jobId) {
+        return broadcastJobService.getProgress(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/broadcast/{jobId}/cancel")
+    public ResponseEntity<Void> cancelBroadcast(@PathVariable Long jobId) {
+        if (!broadcastJobService.cancel(jobId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+    
+    @GetMapping(value = "/broadcast/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBroadcastProgress(@PathVariable Long jobId) {
+        Optional<BroadcastProgressDto> current = broadcastJobService.getProgress(jobId);
+        if (current.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(BROADCAST_SSE_TIMEOUT_MS);
+        Consumer<BroadcastProgressDto> listener = progress -> sendProgressEvent(emitter, progress);
+        Runnable unsubscribe = () -> broadcastJobService.removeProgressListener(jobId, listener);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        
+        broadcastJobService.addProgressListener(jobId, listener);
+        // Obuna bo'lish paytidagi holat (vazifa shu orada tugagan bo'lishi ham mumkin)
+        broadcastJobService.getProgress(jobId).ifPresent(listener);
+        return ResponseEntity.ok(emitter);
+    }
+    
+    private void sendProgressEvent(SseEmitter emitter, BroadcastProgressDto progress) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(progress, MediaType.APPLICATION_JSON));
+            if (progress.finished()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Mijoz ulanishni uzgan
+            emitter.completeWithError(e);
+        }
+    }
+    
     @GetMapping("/find-user/{telegramId}")
     public ResponseEntity<UserDto> findUserByTelegramId(@PathVariable Long telegramId) {
         try {
@@ -410,21 +515,6 @@ public class AdminController {
         private String message;
     }
     
-    @Data
-    public static class BroadcastResponse {
-        private final int totalUsers;
-        private final int successCount;
-        private final int failureCount;
-        private final double successRate;
-        
-        public BroadcastResponse(int totalUsers, int successCount, int failureCount, double successRate) {
-            this.totalUsers = totalUsers;
-            this.successCount = successCount;
-            this.failureCount = failureCount;
-            this.successRate = successRate;
-        }
-    }
-    
     @Data
     public static class SingleMessageRequest {
         private Long telegramId;
@@ -466,6 +556,17 @@ public class AdminController {
         }
     }
     
+    @PostMapping("/cashback/import")
+    public ResponseEntity<?> importPurchases(@RequestParam("file") MultipartFile file) {
+        // Kassa haridlari (CSV yoki Excel): telegram_id, purchase_amount, description - har bir qator bo'yicha natija
+        try {
+            return ResponseEntity.ok(purchaseImportService.importPurchases(file.getOriginalFilename(), file.getInputStream()));
+        } catch (Exception e) {
+            log.error("Error importing purchases: ", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @PostMapping("/cashback/use")
     public ResponseEntity<?> useCashback(@RequestBody UseCashbackRequest request) {
         try {
@@ -508,22 +609,49 @@ public class AdminController {
     }
     
     @GetMapping("/cashback/all-balances")
-    public ResponseEntity<?> getAllUsersCashbackBalance() {
+    public ResponseEntity<?> getAllUsersCashbackBalance(@RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(defaultValue = "20") int size,
+                                                        @RequestParam(defaultValue = "desc") String direction) {
         try {
-            List<uz.kuponbot.kupon.service.CashbackService.UserCashbackBalance> balances = 
-                cashbackService.getAllUsersCashbackBalance();
-            return ResponseEntity.ok(balances);
+            // Balans bo'yicha saralangan sahifa (direction: asc | desc)
+            Sort.Direction sortDirection = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+            return ResponseEntity.ok(cashbackService.getUsersCashbackBalancePage(page, size, sortDirection));
         } catch (Exception e) {
             log.error("Error getting all users cashback balance: ", e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    @GetMapping("/cashback/drift")
+    public ResponseEntity<List<CashbackReconciliationService.CashbackDrift>> getCashbackDrift() {
+        // Oxirgi solishtiruvda balansi daftar bilan mos kelmagan foydalanuvchilar
+        return ResponseEntity.ok(cashbackReconciliationService.getDrifts());
+    }
+    
+    @PostMapping("/cashback/reconcile")
+    public ResponseEntity<CashbackReconciliationService.ReconciliationResult> reconcileCashback(
+            @RequestParam(defaultValue = "false") boolean full) {
+        // full = true - checkpoint'larsiz, daftar boshidan to'liq audit
+        return ResponseEntity.ok(cashbackReconciliationService.reconcile(full));
+    }
+    
     @GetMapping("/cashback/all-history")
-    public ResponseEntity<?> getAllCashbackHistory() {
+    public ResponseEntity<?> getAllCashbackHistory(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "50") int size,
+                                                   @RequestParam(required = false) Cashback.CashbackType type,
+                                                   @RequestParam(required = false) Cashback.CashbackStatus status,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                   @RequestParam(required = false) Long telegramId) {
         try {
-            List<uz.kuponbot.kupon.dto.CashbackDto> history = cashbackService.getAllCashbackHistory();
-            return ResponseEntity.ok(history);
+            // Keyset sahifa: keyingi sahifa uchun javobdagi nextCursor qayta yuboriladi; to - shu kun ham kiradi
+            return ResponseEntity.ok(cashbackService.getCashbackHistoryPage(cursor, size, type, status,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                telegramId));
+        } catch (IllegalArgumentException e) {
+            // Buzilgan yoki qo'lda yozilgan kursor - mijoz xatosi
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             log.error("Error getting all cashback history: ", e);
             return ResponseEntity.internalServerError().build();
@@ -0,0 +1,80 @@
+package uz.kuponbot.kupon.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.bot.UpdateDispatcher;
+
+/**
+ * Webhook rejimida Telegram update'larini qabul qiladi.
+ * Update navbatga qo'yiladi va darhol javob qaytariladi, ishlov berish
+ * polling rejimidagi kabi UpdateDispatcher worker'larida bajariladi.
+ */
+@RestController
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+@Slf4j
+public class TelegramWebhookController {
+
+    public static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    // Telegram obyektlari Jackson 2 annotatsiyalari bilan belgilangan
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final UpdateDispatcher updateDispatcher;
+    private final byte[] secretToken;
+
+    public TelegramWebhookController(
+            UpdateDispatcher updateDispatcher,
+            @Value("${telegram.bot.webhook.secret-token:}") String secretToken) {
+        // Secret'siz webhook ochiq endpoint bo'lib qoladi: istalgan kishi admin nomidan update yubora oladi
+        if (secretToken == null || secretToken.isBlank()) {
+            throw new IllegalStateException("telegram.bot.webhook.secret-token must be set when telegram.bot.mode=webhook");
+        }
+        this.updateDispatcher = updateDispatcher;
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("${telegram.bot.webhook.path:/telegram/webhook}")
+    public ResponseEntity<Void> onUpdate(
+            @RequestHeader(value = SECRET_TOKEN_HEADER, required = false) String token,
+            @RequestBody String body) {
+        if (!isValidToken(token)) {
+            log.warn("Rejected webhook request with invalid secret token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Update update;
+        try {
+            update = objectMapper.readValue(body, Update.class);
+        } catch (JsonProcessingException e) {
+            log.error("Invalid update payload: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Navbat to'lgan bo'lsa 503 qaytariladi, Telegram update'ni keyinroq qayta yuboradi
+        if (!updateDispatcher.dispatch(update)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private boolean isValidToken(String token) {
+        return token != null && MessageDigest.isEqual(secretToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
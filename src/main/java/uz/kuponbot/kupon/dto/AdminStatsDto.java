@@ -6,6 +6,10 @@ public record AdminStatsDto(
     long totalVouchers,
     long activeVouchers,
     long usedVouchers,
-    long expiredVouchers
+    long expiredVouchers,
+    long pendingOrders,
+    long totalCashbackEarned,
+    long totalCashbackUsed,
+    long totalCashbackBalance
 ) {
-}
\ No newline at end of file
+}
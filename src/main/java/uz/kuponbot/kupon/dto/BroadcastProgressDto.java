@@ -0,0 +1,20 @@
+package uz.kuponbot.kupon.dto;
+
+import java.time.LocalDateTime;
+
+public record BroadcastProgressDto(
+    Long jobId,
+    String status,
+    int totalRecipients,
+    int sent,
+    int failed,
+    int remaining,
+    double ratePerSecond,
+    Long etaSeconds,
+    LocalDateTime startedAt,
+    LocalDateTime finishedAt
+) {
+    public boolean finished() {
+        return "COMPLETED".equals(status) || "CANCELLED".equals(status) || "FAILED".equals(status);
+    }
+}
@@ -0,0 +1,69 @@
+package uz.kuponbot.kupon.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * Bitta qabul qiluvchiga yuborish yozuvi. (job_id, user_id) unikal - yozuv yuborishdan
+ * oldin yaratiladi, shuning uchun qayta ishga tushirilgan job hech kimga ikki marta yubormaydi.
+ */
+@Entity
+@Table(name = "broadcast_deliveries",
+    uniqueConstraints = @UniqueConstraint(name = "uk_broadcast_delivery_job_user", columnNames = {"job_id", "user_id"}),
+    indexes = @Index(name = "idx_broadcast_deliveries_job_status", columnList = "job_id, status"))
+@Data
+public class BroadcastDelivery {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id", nullable = false)
+    private BroadcastJob job;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "telegram_id", nullable = false)
+    private Long telegramId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DeliveryStatus status;
+    
+    @Column(length = 500)
+    private String error;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    public enum DeliveryStatus {
+        PENDING,      // Yozildi, yuborilmoqda
+        SENT,
+        FAILED,
+        INTERRUPTED   // Yuborish paytida server to'xtadi - natija noma'lum, qayta yuborilmaydi
+    }
+    
+    public BroadcastDelivery() {
+        this.status = DeliveryStatus.PENDING;
+        this.createdAt = LocalDateTime.now();
+    }
+}
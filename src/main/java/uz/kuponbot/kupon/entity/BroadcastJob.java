@@ -0,0 +1,111 @@
+package uz.kuponbot.kupon.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Ommaviy xabar yuborish vazifasi. lastUserId - qabul qiluvchilar bo'yicha kursor,
+ * restart'dan keyin yuborish shu joydan davom ettiriladi.
+ */
+@Entity
+@Table(name = "broadcast_jobs", indexes = {
+    @Index(name = "idx_broadcast_jobs_status", columnList = "status")
+})
+@Data
+public class BroadcastJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobType type;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status;
+    
+    @Column(columnDefinition = "TEXT")
+    private String text; // TEXT turi uchun
+    
+    @Column(name = "from_chat_id")
+    private Long fromChatId; // MEDIA turi uchun (CopyMessage)
+    
+    @Column(name = "source_message_id")
+    private Integer sourceMessageId;
+    
+    @Column(name = "created_by")
+    private Long createdBy; // Admin telegram ID (panel orqali bo'lsa null)
+    
+    @Column(name = "last_user_id", nullable = false)
+    private Long lastUserId;
+    
+    @Column(name = "total_recipients", nullable = false)
+    private Integer totalRecipients;
+    
+    @Column(name = "sent_count", nullable = false)
+    private Integer sentCount;
+    
+    @Column(name = "failed_count", nullable = false)
+    private Integer failedCount;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public enum JobType {
+        TEXT,
+        MEDIA
+    }
+    
+    public enum JobStatus {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+    
+    public BroadcastJob() {
+        this.status = JobStatus.PENDING;
+        this.lastUserId = 0L;
+        this.totalRecipients = 0;
+        this.sentCount = 0;
+        this.failedCount = 0;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    public boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.CANCELLED || status == JobStatus.FAILED;
+    }
+    
+    public int getProcessedCount() {
+        return sentCount + failedCount;
+    }
+}
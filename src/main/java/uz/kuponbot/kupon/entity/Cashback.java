@@ -9,6 +9,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -17,7 +18,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "cashbacks")
+@Table(name = "cashbacks", indexes = {
+    @Index(name = "idx_cashbacks_type_created_at", columnList = "type, createdAt"),
+    @Index(name = "idx_cashbacks_created_at_id", columnList = "createdAt, id"),
+    @Index(name = "idx_cashbacks_user_id_id", columnList = "user_id, id"),
+    @Index(name = "idx_cashbacks_user_status_expires_at", columnList = "user_id, status, expiresAt"),
+    @Index(name = "idx_cashbacks_status_expires_at", columnList = "status, expiresAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -56,10 +63,19 @@ public class Cashback {
     
     private LocalDateTime usedAt; // Ishlatilgan vaqt
     
+    // Lot: EARNED/REFUNDED yozuvining hali ishlatilmagan qismi (USED/EXPIRED yozuvlarda null)
+    @Column(name = "remaining_amount")
+    private Integer remainingAmount;
+    
+    // Lot muddati: shu vaqtdan keyin qoldiq CashbackExpiryService tomonidan hisobdan chiqariladi
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+    
     public enum CashbackType {
         EARNED,    // Harid orqali olingan
         USED,      // Ishlatilgan
-        REFUNDED   // Qaytarilgan
+        REFUNDED,  // Qaytarilgan
+        EXPIRED    // Muddati o'tgan lot qoldig'i hisobdan chiqarilgan
     }
     
     public enum CashbackStatus {
@@ -0,0 +1,48 @@
+package uz.kuponbot.kupon.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Foydalanuvchi keshbek daftarining nazorat nuqtasi: last_cashback_id gacha bo'lgan yozuvlar
+ * yig'indisi. Keyingi solishtirish faqat shu id dan keyingi yozuvlarni qo'shadi.
+ */
+@Entity
+@Table(name = "cashback_checkpoints", indexes = {
+    @Index(name = "idx_cashback_checkpoints_drift", columnList = "drift")
+})
+@Data
+public class CashbackCheckpoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false, unique = true)
+    private Long userId;
+    
+    // cashbacks yig'indisi (EARNED + REFUNDED - USED - EXPIRED), id <= lastCashbackId
+    @Column(name = "ledger_balance", nullable = false)
+    private Long ledgerBalance = 0L;
+    
+    @Column(name = "last_cashback_id", nullable = false)
+    private Long lastCashbackId = 0L;
+    
+    // Oxirgi tekshiruvdagi users.cashback_balance va daftar bilan farqi (0 - mos)
+    @Column(name = "user_balance", nullable = false)
+    private Integer userBalance = 0;
+    
+    @Column(nullable = false)
+    private Long drift = 0L;
+    
+    @Column(name = "checked_at", nullable = false)
+    private LocalDateTime checkedAt;
+}
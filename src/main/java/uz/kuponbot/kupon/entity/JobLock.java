@@ -0,0 +1,35 @@
+package uz.kuponbot.kupon.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Rejali job uchun klaster bo'yicha lease. lock_until o'tmaguncha job'ni faqat owner ishga tushira oladi;
+ * ishlab turgan owner heartbeat bilan lock_until ni uzaytiradi, to'xtagan owner'ning lease'i tez tugaydi.
+ */
+@Entity
+@Table(name = "job_locks")
+@Data
+public class JobLock {
+    
+    @Id
+    @Column(length = 100)
+    private String name;
+    
+    @Column(nullable = false)
+    private String owner;
+    
+    @Column(name = "lock_until", nullable = false)
+    private LocalDateTime lockUntil;
+    
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+    
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+}
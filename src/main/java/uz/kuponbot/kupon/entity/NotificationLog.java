@@ -0,0 +1,40 @@
+package uz.kuponbot.kupon.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * Yuborilgan rejali xabarlar jurnali. (rule, subject_id, period) unikal - yozuv yuborishdan
+ * oldin qo'shiladi, shuning uchun restart yoki bir nechta instance bir xabarni qayta yubormaydi.
+ */
+@Entity
+@Table(name = "notification_log",
+    uniqueConstraints = @UniqueConstraint(name = "uk_notification_log_rule_subject_period",
+        columnNames = {"rule", "subject_id", "period"}))
+@Data
+public class NotificationLog {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 50)
+    private String rule; // Masalan: purchase_3d, eyewear_care_15d
+    
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId; // Cashback, user yoki voucher id
+    
+    @Column(nullable = false, length = 20)
+    private String period; // Masalan: 2026-10-17
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,92 @@
+package uz.kuponbot.kupon.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * Kechiktirilgan xabar navbati: harid yoki ro'yxatdan o'tish paytida due_at bilan yoziladi,
+ * ScheduledMessageDispatcher vaqti kelganlarini FOR UPDATE SKIP LOCKED bilan oladi.
+ * (kind, subject_id) unikal - bitta obyekt uchun bir turdagi xabar bir marta navbatga tushadi.
+ */
+@Entity
+@Table(name = "scheduled_messages",
+    uniqueConstraints = @UniqueConstraint(name = "uk_scheduled_messages_kind_subject",
+        columnNames = {"kind", "subject_id"}),
+    indexes = @Index(name = "idx_scheduled_messages_status_due_at", columnList = "status, dueAt"))
+@Data
+public class ScheduledMessage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Kind kind;
+    
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId; // Kind ga qarab cashback yoki user id
+    
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+    
+    @Column(nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    /**
+     * Xabar turi. ruleName - notification_log dagi qoida nomi (avvalgi kunlik skan bilan bir xil,
+     * shuning uchun allaqachon yuborilgan xabarlar qayta ketmaydi).
+     */
+    public enum Kind {
+        PURCHASE_3D("purchase_3d"),                  // harid + 3 kun, adminga
+        EYEWEAR_CARE_15D("eyewear_care_15d"),        // harid + 15 kun, mijozga
+        EYE_CHECKUP_3M("eye_checkup_3m"),            // ro'yxatdan o'tish + 3 oy
+        FREE_CONSULTATION_6M("free_consultation_6m"), // ro'yxatdan o'tish + 6 oy
+        ANNIVERSARY_6M("anniversary_6m");            // ro'yxatdan o'tish + 6 oy, adminga
+        
+        private final String ruleName;
+        
+        Kind(String ruleName) {
+            this.ruleName = ruleName;
+        }
+        
+        public String getRuleName() {
+            return ruleName;
+        }
+    }
+    
+    public enum Status {
+        PENDING,
+        PROCESSING,
+        SENT,
+        SKIPPED,
+        FAILED
+    }
+}
@@ -1,6 +1,10 @@
 package uz.kuponbot.kupon.entity;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 
 import org.hibernate.annotations.DynamicUpdate;
 
@@ -11,6 +15,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,7 +23,11 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @DynamicUpdate
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_state_id", columnList = "state, id"),
+    @Index(name = "idx_users_created_at", columnList = "createdAt"),
+    @Index(name = "idx_users_birth_month_day", columnList = "birth_month, birth_day")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -73,12 +82,48 @@ public class User {
         this.fullName = fullName;
     }
     
+    private static final DateTimeFormatter BIRTH_DATE_FORMAT =
+        DateTimeFormatter.ofPattern("dd.MM.uuuu").withResolverStyle(ResolverStyle.STRICT);
+    
     private String birthDate; // Format: DD.MM.YYYY
     
+    // birthDate dan ajratilgan oy va kun - tug'ilgan kun bo'yicha indeksli qidiruv uchun
+    @Column(name = "birth_month")
+    private Integer birthMonth;
+    
+    @Column(name = "birth_day")
+    private Integer birthDay;
+    
+    /**
+     * Tug'ilgan sanani saqlaydi va birthMonth/birthDay ni sinxron yangilaydi.
+     * Format noto'g'ri bo'lsa oy/kun null bo'lib qoladi.
+     */
+    public void setBirthDate(String birthDate) {
+        this.birthDate = birthDate;
+        LocalDate parsed = parseBirthDate(birthDate);
+        this.birthMonth = parsed != null ? parsed.getMonthValue() : null;
+        this.birthDay = parsed != null ? parsed.getDayOfMonth() : null;
+    }
+    
+    /**
+     * "dd.MM.yyyy" ni qat'iy tekshirib parse qiladi (31.02 kabi sanalar rad etiladi), xato bo'lsa null.
+     */
+    public static LocalDate parseBirthDate(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text.trim(), BIRTH_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
     @Column(name = "language", nullable = true)
     private String language = "uz"; // "uz" (lotin), "ru" (rus), "uz_cyrl" (kiril)
     
-    @Column(name = "cashback_balance", columnDefinition = "INTEGER DEFAULT 0")
+    // Faqat UserRepository.addCashbackBalance/subtractCashbackBalance orqali o'zgaradi
+    @Column(name = "cashback_balance", columnDefinition = "INTEGER DEFAULT 0", updatable = false)
     private Integer cashbackBalance = 0; // Keshbek balansi (so'm)
     
     @Enumerated(EnumType.STRING)
@@ -9,13 +9,16 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
-@Table(name = "vouchers")
+@Table(name = "vouchers", indexes = {
+    @Index(name = "idx_vouchers_status_expires_at", columnList = "status, expiresAt")
+})
 @Data
 public class Voucher {
     
@@ -0,0 +1,39 @@
+package uz.kuponbot.kupon.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import uz.kuponbot.kupon.entity.BroadcastDelivery;
+
+@Repository
+public interface BroadcastDeliveryRepository extends JpaRepository<BroadcastDelivery, Long> {
+    
+    @Query("SELECT d.userId FROM BroadcastDelivery d WHERE d.job.id = :jobId AND d.userId IN :userIds")
+    List<Long> findExistingUserIds(@Param("jobId") Long jobId, @Param("userIds") Collection<Long> userIds);
+    
+    @Query("SELECT d.status, COUNT(d) FROM BroadcastDelivery d WHERE d.job.id = :jobId GROUP BY d.status")
+    List<Object[]> countByStatus(@Param("jobId") Long jobId);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE BroadcastDelivery d SET d.status = 'SENT', d.sentAt = :sentAt WHERE d.job.id = :jobId AND d.userId IN :userIds")
+    int markSent(@Param("jobId") Long jobId, @Param("userIds") Collection<Long> userIds, @Param("sentAt") LocalDateTime sentAt);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE BroadcastDelivery d SET d.status = 'FAILED', d.error = :error WHERE d.job.id = :jobId AND d.userId = :userId")
+    int markFailed(@Param("jobId") Long jobId, @Param("userId") Long userId, @Param("error") String error);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE BroadcastDelivery d SET d.status = 'INTERRUPTED' WHERE d.job.id = :jobId AND d.status = 'PENDING'")
+    int markInterrupted(@Param("jobId") Long jobId);
+}
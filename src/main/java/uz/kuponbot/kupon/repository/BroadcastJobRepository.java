@@ -0,0 +1,16 @@
+package uz.kuponbot.kupon.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import uz.kuponbot.kupon.entity.BroadcastJob;
+
+@Repository
+public interface BroadcastJobRepository extends JpaRepository<BroadcastJob, Long> {
+    
+    List<BroadcastJob> findByStatusInOrderByIdAsc(List<BroadcastJob.JobStatus> statuses);
+    
+    List<BroadcastJob> findTop20ByOrderByIdDesc();
+}
@@ -0,0 +1,44 @@
+package uz.kuponbot.kupon.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import uz.kuponbot.kupon.entity.CashbackCheckpoint;
+
+@Repository
+public interface CashbackCheckpointRepository extends JpaRepository<CashbackCheckpoint, Long> {
+    
+    List<CashbackCheckpoint> findByUserIdIn(Collection<Long> userIds);
+    
+    /**
+     * Foydalanuvchilar sahifasi (id > afterId) uchun solishtirish qatorlari:
+     * [userId, cashbackBalance, checkpoint ledgerBalance, checkpoint lastCashbackId, settledDelta, totalDelta].
+     * Faqat checkpoint'dan keyingi yozuvlar yig'iladi (idx_cashbacks_user_id_id); full = true bo'lsa hammasi.
+     * settledDelta - id <= watermark bo'lgan yozuvlar (checkpoint shu yerga suriladi), totalDelta - barchasi.
+     */
+    @Query(value = "SELECT u.id, u.cashback_balance, cp.ledger_balance, cp.last_cashback_id, " +
+                   "COALESCE(SUM(CASE WHEN c.id <= :watermark THEN " +
+                   "CASE WHEN c.type IN ('USED', 'EXPIRED') THEN -c.cashback_amount ELSE c.cashback_amount END ELSE 0 END), 0), " +
+                   "COALESCE(SUM(CASE WHEN c.type IN ('USED', 'EXPIRED') THEN -c.cashback_amount ELSE c.cashback_amount END), 0) " +
+                   "FROM users u " +
+                   "LEFT JOIN cashback_checkpoints cp ON cp.user_id = u.id " +
+                   "LEFT JOIN cashbacks c ON c.user_id = u.id " +
+                   "AND c.id > CASE WHEN :full THEN 0 ELSE COALESCE(cp.last_cashback_id, 0) END " +
+                   "WHERE u.id > :afterId " +
+                   "GROUP BY u.id, u.cashback_balance, cp.ledger_balance, cp.last_cashback_id " +
+                   "ORDER BY u.id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findReconciliationPage(@Param("afterId") Long afterId,
+                                          @Param("watermark") Long watermark,
+                                          @Param("full") boolean full,
+                                          @Param("limit") int limit);
+    
+    // Farqi bor foydalanuvchilar: [telegramId, fullName, userBalance, ledgerBalance, drift, checkedAt]
+    @Query("SELECT u.telegramId, u.fullName, cp.userBalance, cp.ledgerBalance, cp.drift, cp.checkedAt " +
+           "FROM CashbackCheckpoint cp JOIN User u ON u.id = cp.userId WHERE cp.drift <> 0 ORDER BY cp.checkedAt DESC")
+    List<Object[]> findDrifts();
+}
@@ -1,10 +1,18 @@
 package uz.kuponbot.kupon.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import uz.kuponbot.kupon.dto.CashbackDto;
 import uz.kuponbot.kupon.entity.Cashback;
 import uz.kuponbot.kupon.entity.User;
 
@@ -15,5 +23,110 @@ public interface CashbackRepository extends JpaRepository<Cashback, Long> {
     
     List<Cashback> findByUserAndStatusOrderByCreatedAtDesc(User user, Cashback.CashbackStatus status);
     
-    List<Cashback> findAllByOrderByCreatedAtDesc();
+    /**
+     * Keshbek tarixi sahifasi: (createdAt, id) bo'yicha keyset, kamayish tartibida (idx_cashbacks_created_at_id).
+     * Boshidagi createdAt <= :beforeCreatedAt sharti OR'siz, shuning uchun indeks diapazon skani bilan ishlatiladi.
+     * User bitta JOIN bilan olinadi va to'g'ridan-to'g'ri DTO'ga proyeksiya qilinadi. Filtrlar ixtiyoriy (null).
+     */
+    @Query("SELECT new uz.kuponbot.kupon.dto.CashbackDto(c.id, u.id, u.telegramId, u.fullName, u.phoneNumber, " +
+           "c.purchaseAmount, c.cashbackAmount, c.cashbackPercentage, CAST(c.type AS String), CAST(c.status AS String), " +
+           "c.description, c.createdAt, c.usedAt) " +
+           "FROM Cashback c JOIN c.user u " +
+           "WHERE c.createdAt <= :beforeCreatedAt " +
+           "AND (c.createdAt < :beforeCreatedAt OR (c.createdAt = :beforeCreatedAt AND c.id < :beforeId)) " +
+           "AND (:type IS NULL OR c.type = :type) " +
+           "AND (:status IS NULL OR c.status = :status) " +
+           "AND (:from IS NULL OR c.createdAt >= :from) " +
+           "AND (:to IS NULL OR c.createdAt < :to) " +
+           "AND (:telegramId IS NULL OR u.telegramId = :telegramId) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CashbackDto> findHistoryPage(@Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                      @Param("beforeId") Long beforeId,
+                                      @Param("type") Cashback.CashbackType type,
+                                      @Param("status") Cashback.CashbackStatus status,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("telegramId") Long telegramId,
+                                      Pageable pageable);
+    
+    // (from, to) oralig'idagi yozuvlar, id bo'yicha keyset sahifalash (idx_cashbacks_type_created_at)
+    @Query("SELECT c FROM Cashback c JOIN FETCH c.user WHERE c.type = :type " +
+           "AND c.createdAt > :from AND c.createdAt < :to AND c.id > :afterId ORDER BY c.id ASC")
+    List<Cashback> findPageByTypeCreatedBetween(@Param("type") Cashback.CashbackType type,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+    
+    // Solishtirish uchun chegara: bundan oldin yozilgan (commit bo'lib ulgurgan) oxirgi yozuv id si
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM Cashback c WHERE c.createdAt < :before")
+    Long findMaxIdCreatedBefore(@Param("before") LocalDateTime before);
+    
+    // Ishlatilishi mumkin bo'lgan lotlar, FIFO: avval muddati oldin tugaydigani (idx_cashbacks_user_status_expires_at)
+    @Query("SELECT c FROM Cashback c WHERE c.user = :user AND c.status = 'ACTIVE' AND c.remainingAmount > 0 " +
+           "ORDER BY c.expiresAt ASC, c.id ASC")
+    List<Cashback> findSpendableLots(@Param("user") User user);
+    
+    // Muddati o'tgan qoldig'i bor foydalanuvchilar, user_id bo'yicha sahifalab (idx_cashbacks_status_expires_at)
+    @Query(value = "SELECT DISTINCT user_id FROM cashbacks WHERE status = 'ACTIVE' AND remaining_amount > 0 " +
+                   "AND expires_at < :now AND user_id > :afterId ORDER BY user_id LIMIT :limit", nativeQuery = true)
+    List<Long> findUserIdsWithExpiredLots(@Param("now") LocalDateTime now,
+                                          @Param("afterId") Long afterId,
+                                          @Param("limit") int limit);
+    
+    @Query(value = "SELECT COALESCE(SUM(remaining_amount), 0) FROM cashbacks WHERE user_id IN (:userIds) " +
+                   "AND status = 'ACTIVE' AND remaining_amount > 0 AND expires_at < :now", nativeQuery = true)
+    long sumExpiredRemaining(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+    
+    // Quyidagi uchtasi CashbackExpiryService tranzaksiyasida, user qatorlari bloklangandan keyin chaqiriladi
+    
+    // Har bir foydalanuvchiga bitta EXPIRED yozuv - muddati o'tgan qoldiqlar yig'indisi
+    @Modifying
+    @Query(value = "INSERT INTO cashbacks (user_id, purchase_amount, cashback_amount, cashback_percentage, type, status, " +
+                   "description, created_at, used_at) " +
+                   "SELECT user_id, 0, SUM(remaining_amount), 0, 'EXPIRED', 'EXPIRED', :description, :now, :now " +
+                   "FROM cashbacks WHERE user_id IN (:userIds) AND status = 'ACTIVE' AND remaining_amount > 0 " +
+                   "AND expires_at < :now GROUP BY user_id", nativeQuery = true)
+    int insertExpiryEntries(@Param("userIds") Collection<Long> userIds,
+                            @Param("now") LocalDateTime now,
+                            @Param("description") String description);
+    
+    // Qoldiq audit uchun saqlanadi; status EXPIRED bo'lgani uchun endi ishlatilmaydi
+    @Modifying
+    @Query(value = "UPDATE cashbacks SET status = 'EXPIRED' WHERE user_id IN (:userIds) AND status = 'ACTIVE' " +
+                   "AND remaining_amount > 0 AND expires_at < :now", nativeQuery = true)
+    int markLotsExpired(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+    
+    // Lot ustunlari qo'shilishidan oldingi (remaining_amount to'ldirilmagan) faol EARNED/REFUNDED yozuvlari bor foydalanuvchilar
+    @Query(value = "SELECT DISTINCT user_id FROM cashbacks WHERE remaining_amount IS NULL AND status = 'ACTIVE' " +
+                   "AND type IN ('EARNED', 'REFUNDED') AND user_id > :afterId ORDER BY user_id LIMIT :limit", nativeQuery = true)
+    List<Long> findUserIdsWithUnallocatedLots(@Param("afterId") Long afterId, @Param("limit") int limit);
+    
+    // Eng yangisidan boshlab - balans avval yangi lotlarga taqsimlanadi
+    @Query("SELECT c FROM Cashback c WHERE c.user.id IN :userIds AND c.remainingAmount IS NULL AND c.status = 'ACTIVE' " +
+           "AND c.type IN ('EARNED', 'REFUNDED') ORDER BY c.user.id, c.id DESC")
+    List<Cashback> findUnallocatedLots(@Param("userIds") Collection<Long> userIds);
+    
+    // [userId, SUM(remainingAmount)] - allaqachon lot sifatida hisobga olingan qoldiq
+    @Query("SELECT c.user.id, SUM(c.remainingAmount) FROM Cashback c WHERE c.user.id IN :userIds " +
+           "AND c.status = 'ACTIVE' AND c.remainingAmount IS NOT NULL GROUP BY c.user.id")
+    List<Object[]> sumAllocatedRemainingByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    @Query("SELECT c.type, COALESCE(SUM(c.cashbackAmount), 0) FROM Cashback c GROUP BY c.type")
+    List<Object[]> sumAmountGroupedByType();
+    
+    // Balans hisoboti bitta so'rovda: [telegramId, fullName, phoneNumber, cashbackBalance, totalEarned, totalUsed]
+    @Query(value = "SELECT u.telegramId, u.fullName, u.phoneNumber, u.cashbackBalance, " +
+                   "COALESCE(SUM(CASE WHEN c.type = 'EARNED' THEN c.cashbackAmount ELSE 0 END), 0), " +
+                   "COALESCE(SUM(CASE WHEN c.type = 'USED' AND c.status = 'USED' THEN c.cashbackAmount ELSE 0 END), 0) " +
+                   "FROM User u LEFT JOIN Cashback c ON c.user = u WHERE u.state = :state " +
+                   "GROUP BY u.id, u.telegramId, u.fullName, u.phoneNumber, u.cashbackBalance",
+           countQuery = "SELECT COUNT(u) FROM User u WHERE u.state = :state")
+    Page<Object[]> findBalanceReport(@Param("state") User.UserState state, Pageable pageable);
+    
+    // Bitta foydalanuvchi uchun [totalEarned, totalUsed] (idx_cashbacks_user_id)
+    @Query("SELECT COALESCE(SUM(CASE WHEN c.type = 'EARNED' THEN c.cashbackAmount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN c.type = 'USED' AND c.status = 'USED' THEN c.cashbackAmount ELSE 0 END), 0) " +
+           "FROM Cashback c WHERE c.user = :user")
+    List<Object[]> sumEarnedAndUsed(@Param("user") User user);
 }
@@ -0,0 +1,56 @@
+package uz.kuponbot.kupon.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import uz.kuponbot.kupon.entity.JobLock;
+
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+    
+    // Barcha vaqtlar bazaning soatida (LOCALTIMESTAMP) hisoblanadi: node'lar soati farq qilsa ham lease bir xil
+    
+    // Muddati o'tgan lease'ni egallash
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE job_locks SET owner = :owner, " +
+                   "lock_until = LOCALTIMESTAMP + CAST(:leaseMillis AS DOUBLE PRECISION) * INTERVAL '0.001' SECOND, " +
+                   "locked_at = LOCALTIMESTAMP, heartbeat_at = LOCALTIMESTAMP " +
+                   "WHERE name = :name AND lock_until <= LOCALTIMESTAMP", nativeQuery = true)
+    int takeExpired(@Param("name") String name, @Param("owner") String owner, @Param("leaseMillis") long leaseMillis);
+    
+    // Birinchi marta: qator yo'q bo'lsa yaratish, parallel yaratilgan bo'lsa 0 qaytadi
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO job_locks (name, owner, lock_until, locked_at, heartbeat_at) " +
+                   "VALUES (:name, :owner, LOCALTIMESTAMP + CAST(:leaseMillis AS DOUBLE PRECISION) * INTERVAL '0.001' SECOND, " +
+                   "LOCALTIMESTAMP, LOCALTIMESTAMP) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name, @Param("owner") String owner, @Param("leaseMillis") long leaseMillis);
+    
+    // Heartbeat: lease'ni hozirdan boshlab uzaytirish
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE job_locks SET " +
+                   "lock_until = LOCALTIMESTAMP + CAST(:leaseMillis AS DOUBLE PRECISION) * INTERVAL '0.001' SECOND, " +
+                   "heartbeat_at = LOCALTIMESTAMP WHERE name = :name AND owner = :owner", nativeQuery = true)
+    int extend(@Param("name") String name, @Param("owner") String owner, @Param("leaseMillis") long leaseMillis);
+    
+    // Ish tugadi: lock locked_at + minHold gacha (o'tib ketgan bo'lsa darhol) bo'shaydi
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE job_locks SET lock_until = GREATEST(LOCALTIMESTAMP, " +
+                   "locked_at + CAST(:minHoldMillis AS DOUBLE PRECISION) * INTERVAL '0.001' SECOND), " +
+                   "heartbeat_at = LOCALTIMESTAMP WHERE name = :name AND owner = :owner", nativeQuery = true)
+    int releaseAfterMinHold(@Param("name") String name, @Param("owner") String owner,
+                            @Param("minHoldMillis") long minHoldMillis);
+    
+    // Bir martalik lock'lar (masalan, broadcast vazifasi) ish tugagach o'chiriladi
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM job_locks WHERE name = :name AND owner = :owner", nativeQuery = true)
+    int deleteOwned(@Param("name") String name, @Param("owner") String owner);
+}
@@ -0,0 +1,38 @@
+package uz.kuponbot.kupon.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import uz.kuponbot.kupon.entity.NotificationLog;
+
+@Repository
+public interface NotificationLogRepository extends JpaRepository<NotificationLog, Long> {
+    
+    // 1 - yozuv qo'shildi (bu instance yuboradi), 0 - allaqachon mavjud
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO notification_log (rule, subject_id, period, created_at) " +
+                   "VALUES (:rule, :subjectId, :period, :createdAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rule") String rule,
+                       @Param("subjectId") Long subjectId,
+                       @Param("period") String period,
+                       @Param("createdAt") LocalDateTime createdAt);
+    
+    boolean existsByRuleAndSubjectIdAndPeriod(String rule, Long subjectId, String period);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NotificationLog n WHERE n.rule = :rule AND n.subjectId = :subjectId AND n.period = :period")
+    int deleteKey(@Param("rule") String rule, @Param("subjectId") Long subjectId, @Param("period") String period);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NotificationLog n WHERE n.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
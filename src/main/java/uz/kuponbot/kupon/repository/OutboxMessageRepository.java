@@ -0,0 +1,54 @@
+package uz.kuponbot.kupon.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import uz.kuponbot.kupon.entity.OutboxMessage;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+    
+    // Yuborishga tayyor xabarlar (idx_outbox_messages_status_next_attempt); boshqa node bloklaganlari o'tkaziladi
+    @Query(value = "SELECT * FROM outbox_messages WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMessage> lockReady(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.attempts = m.attempts + 1, m.nextAttemptAt = :leaseUntil WHERE m.id IN :ids")
+    int markClaimed(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'SENT', m.sentAt = :now, m.lastError = NULL WHERE m.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.nextAttemptAt = :nextAttemptAt, m.lastError = :error WHERE m.id = :id")
+    int scheduleRetry(@Param("id") Long id,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("error") String error);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'FAILED', m.lastError = :error WHERE m.id = :id")
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+    
+    long countByStatus(OutboxMessage.Status status);
+    
+    Optional<OutboxMessage> findTopByStatusOrderByIdAsc(OutboxMessage.Status status);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.status IN ('SENT', 'FAILED') AND m.createdAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,68 @@
+package uz.kuponbot.kupon.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import uz.kuponbot.kupon.entity.ScheduledMessage;
+
+@Repository
+public interface ScheduledMessageRepository extends JpaRepository<ScheduledMessage, Long> {
+    
+    // 1 - navbatga qo'shildi, 0 - (kind, subject_id) allaqachon bor
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO scheduled_messages (kind, subject_id, due_at, status, attempts, created_at) " +
+                   "VALUES (:kind, :subjectId, :dueAt, 'PENDING', 0, :createdAt) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("kind") String kind,
+                       @Param("subjectId") Long subjectId,
+                       @Param("dueAt") LocalDateTime dueAt,
+                       @Param("createdAt") LocalDateTime createdAt);
+    
+    // Vaqti kelgan xabarlar (idx_scheduled_messages_status_due_at); boshqa node bloklagan qatorlar o'tkazib yuboriladi
+    @Query(value = "SELECT * FROM scheduled_messages WHERE status = 'PENDING' AND due_at <= :now " +
+                   "ORDER BY due_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ScheduledMessage> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE ScheduledMessage m SET m.status = 'PROCESSING', m.claimedAt = :now, m.attempts = m.attempts + 1 " +
+           "WHERE m.id IN :ids")
+    int markClaimed(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScheduledMessage m SET m.status = :status, m.finishedAt = :now, m.lastError = :error " +
+           "WHERE m.id IN :ids")
+    int finish(@Param("ids") Collection<Long> ids,
+               @Param("status") ScheduledMessage.Status status,
+               @Param("error") String error,
+               @Param("now") LocalDateTime now);
+    
+    // Muvaffaqiyatsiz yuborish keyinroq qayta urinish uchun navbatga qaytadi
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScheduledMessage m SET m.status = 'PENDING', m.dueAt = :dueAt, m.lastError = :error WHERE m.id = :id")
+    int reschedule(@Param("id") Long id, @Param("dueAt") LocalDateTime dueAt, @Param("error") String error);
+    
+    // Node ishlov berish paytida to'xtab qolsa, uning qatorlari yana navbatga qaytadi
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScheduledMessage m SET m.status = 'PENDING' WHERE m.status = 'PROCESSING' AND m.claimedAt < :before")
+    int releaseClaimedBefore(@Param("before") LocalDateTime before);
+    
+    Optional<ScheduledMessage> findTopByOrderByIdAsc();
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ScheduledMessage m WHERE m.status IN ('SENT', 'SKIPPED', 'FAILED') AND m.finishedAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,12 +1,19 @@
 package uz.kuponbot.kupon.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
 import uz.kuponbot.kupon.entity.User;
 
 @Repository
@@ -16,5 +23,89 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     boolean existsByTelegramId(Long telegramId);
     
+    List<User> findByTelegramIdIn(Collection<Long> telegramIds);
+    
     List<User> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
-}
\ No newline at end of file
+    
+    // Admin'lar chiqarib tashlanadi. adminIds bo'sh bo'lmasligi kerak (NOT IN ()) - AdminConfig.getExcludedIds()
+    @Query("SELECT u FROM User u WHERE u.telegramId NOT IN :adminIds ORDER BY u.id ASC")
+    List<User> findAllExcludingAdmins(@Param("adminIds") Collection<Long> adminIds);
+    
+    @Query("SELECT COUNT(u) FROM User u WHERE u.telegramId NOT IN :adminIds")
+    long countExcludingAdmins(@Param("adminIds") Collection<Long> adminIds);
+    
+    @Query("SELECT u FROM User u WHERE u.telegramId NOT IN :adminIds AND u.createdAt BETWEEN :from AND :to ORDER BY u.id ASC")
+    List<User> findCreatedBetweenExcludingAdmins(@Param("adminIds") Collection<Long> adminIds,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to);
+    
+    @Query("SELECT COALESCE(SUM(u.cashbackBalance), 0) FROM User u")
+    long sumCashbackBalance();
+    
+    // Keshbek balansi faqat shu atomik UPDATE'lar orqali o'zgaradi (User.cashbackBalance updatable = false).
+    // Native: JPQL parametrni columnDefinition ("INTEGER DEFAULT 0") ga cast qilib yuboradi
+    @Modifying
+    @Query(value = "UPDATE users SET cashback_balance = cashback_balance + :amount WHERE id = :id", nativeQuery = true)
+    int addCashbackBalance(@Param("id") Long id, @Param("amount") int amount);
+    
+    // Balans yetmasa 0 qaytaradi - yechish va tekshiruv bitta so'rovda
+    @Modifying
+    @Query(value = "UPDATE users SET cashback_balance = cashback_balance - :amount WHERE id = :id AND cashback_balance >= :amount",
+           nativeQuery = true)
+    int subtractCashbackBalance(@Param("id") Long id, @Param("amount") int amount);
+    
+    // Lotlar muddati o'tganda: balansdan shu foydalanuvchining muddati o'tgan qoldiqlari yechiladi
+    @Modifying
+    @Query(value = "UPDATE users SET cashback_balance = cashback_balance - (SELECT COALESCE(SUM(c.remaining_amount), 0) " +
+                   "FROM cashbacks c WHERE c.user_id = users.id AND c.status = 'ACTIVE' AND c.remaining_amount > 0 " +
+                   "AND c.expires_at < :now) WHERE id IN (:ids)", nativeQuery = true)
+    int subtractExpiredLots(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Qatorlarni tranzaksiya oxirigacha bloklaydi (id tartibida - deadlock bo'lmasligi uchun)
+    @Query(value = "SELECT telegram_id FROM users WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockTelegramIdsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT u.cashbackBalance FROM User u WHERE u.id = :id")
+    Integer findCashbackBalanceById(@Param("id") Long id);
+    
+    // [id, cashbackBalance]
+    @Query("SELECT u.id, u.cashbackBalance FROM User u WHERE u.id IN :ids")
+    List<Object[]> findCashbackBalancesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.telegramId = :telegramId")
+    Optional<User> findByTelegramIdForUpdate(@Param("telegramId") Long telegramId);
+    
+    @Query("SELECT COUNT(u) FROM User u WHERE u.state = :state AND u.telegramId NOT IN :adminIds")
+    long countRecipients(@Param("state") User.UserState state, @Param("adminIds") Collection<Long> adminIds);
+    
+    // Keyset pagination: id bo'yicha navbatdagi sahifa (OFFSET ishlatilmaydi)
+    @Query("SELECT u FROM User u WHERE u.state = :state AND u.telegramId NOT IN :adminIds AND u.id > :afterId ORDER BY u.id ASC")
+    List<User> findRecipientPage(@Param("state") User.UserState state,
+                                 @Param("adminIds") Collection<Long> adminIds,
+                                 @Param("afterId") Long afterId,
+                                 Pageable pageable);
+    
+    @Query("SELECT u FROM User u WHERE u.state = :state AND u.telegramId NOT IN :adminIds AND u.id > :afterId " +
+           "AND u.createdAt >= :from AND u.createdAt < :to ORDER BY u.id ASC")
+    List<User> findRecipientPageCreatedBetween(@Param("state") User.UserState state,
+                                               @Param("adminIds") Collection<Long> adminIds,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+    
+    // Tug'ilgan kuni berilgan oy va kun(lar)ga to'g'ri keladigan qabul qiluvchilar (idx_users_birth_month_day)
+    @Query("SELECT u FROM User u WHERE u.state = :state AND u.telegramId NOT IN :adminIds AND u.id > :afterId " +
+           "AND u.birthMonth = :month AND u.birthDay IN :days ORDER BY u.id ASC")
+    List<User> findRecipientPageByBirthday(@Param("state") User.UserState state,
+                                           @Param("adminIds") Collection<Long> adminIds,
+                                           @Param("month") Integer month,
+                                           @Param("days") Collection<Integer> days,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+    
+    // birth_month hali to'ldirilmagan eski yozuvlar (backfill uchun)
+    @Query("SELECT u FROM User u WHERE u.birthDate IS NOT NULL AND u.birthMonth IS NULL AND u.id > :afterId ORDER BY u.id ASC")
+    List<User> findBirthDateBackfillPage(@Param("afterId") Long afterId, Pageable pageable);
+}
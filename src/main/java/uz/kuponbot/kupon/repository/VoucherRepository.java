@@ -1,13 +1,16 @@
 package uz.kuponbot.kupon.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import uz.kuponbot.kupon.entity.User;
 import uz.kuponbot.kupon.entity.Voucher;
@@ -25,18 +28,29 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
     
     List<Voucher> findByType(Voucher.VoucherType type);
     
-    @Query("SELECT v FROM Voucher v WHERE v.status = 'ACTIVE' AND v.expiresAt < :now")
-    List<Voucher> findExpiredVouchers(@Param("now") LocalDateTime now);
-    
     @Query("SELECT v FROM Voucher v WHERE v.status = 'ACTIVE' AND v.expiresAt BETWEEN :now AND :tomorrow")
     List<Voucher> findVouchersExpiringTomorrow(@Param("now") LocalDateTime now, @Param("tomorrow") LocalDateTime tomorrow);
     
     @Query("SELECT v FROM Voucher v WHERE v.status = 'ACTIVE' AND v.expiresAt BETWEEN :now AND :dayAfterTomorrow AND (v.lastReminderSent IS NULL OR v.lastReminderSent < :yesterday)")
     List<Voucher> findVouchersNeedingReminder(@Param("now") LocalDateTime now, @Param("dayAfterTomorrow") LocalDateTime dayAfterTomorrow, @Param("yesterday") LocalDateTime yesterday);
     
+    // Muddati o'tgan barcha ACTIVE voucherlarni bitta UPDATE bilan EXPIRED qilish (idx_vouchers_status_expires_at)
+    @Transactional
+    @Modifying
+    @Query("UPDATE Voucher v SET v.status = 'EXPIRED' WHERE v.status = 'ACTIVE' AND v.expiresAt < :now")
+    int expireActiveBefore(@Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Voucher v SET v.lastReminderSent = :sentAt WHERE v.id IN :ids")
+    int markReminderSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+    
     boolean existsByCode(String code);
     
     long countByStatus(Voucher.VoucherStatus status);
     
+    @Query("SELECT v.status, COUNT(v) FROM Voucher v GROUP BY v.status")
+    List<Object[]> countGroupedByStatus();
+    
     long countByType(Voucher.VoucherType type);
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package uz.kuponbot.kupon.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.config.AdminConfig;
+import uz.kuponbot.kupon.dto.AdminStatsDto;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.Order;
+import uz.kuponbot.kupon.entity.Voucher;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+import uz.kuponbot.kupon.repository.OrderRepository;
+import uz.kuponbot.kupon.repository.ProductRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+import uz.kuponbot.kupon.repository.VoucherRepository;
+
+/**
+ * Admin panel statistikasi xotirada saqlanadi. Ishga tushganda aggregate so'rovlar bilan
+ * to'ldiriladi, keyin servislardan keladigan event'lar (commit'dan keyin) bilan yangilanadi
+ * va vaqti-vaqti bilan bazadan qayta tekshiriladi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdminStatsService {
+
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final VoucherRepository voucherRepository;
+    private final OrderRepository orderRepository;
+    private final CashbackRepository cashbackRepository;
+    private final AdminConfig adminConfig;
+    private final JobRunRegistry jobRunRegistry;
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong activeProducts = new AtomicLong();
+    private final Map<Voucher.VoucherStatus, AtomicLong> vouchers = counters(Voucher.VoucherStatus.class);
+    private final AtomicLong pendingOrders = new AtomicLong();
+    private final Map<Cashback.CashbackType, AtomicLong> cashbackTotals = counters(Cashback.CashbackType.class);
+    private final AtomicLong cashbackBalance = new AtomicLong();
+
+    private volatile boolean seeded;
+
+    // ========== DOMAIN EVENT'LAR ==========
+
+    public record UserCreated(Long telegramId) {}
+
+    public record ProductsChanged() {}
+
+    public record VoucherStatusChanged(Voucher.VoucherStatus from, Voucher.VoucherStatus to, long count) {}
+
+    public record OrderStatusChanged(Order.OrderStatus from, Order.OrderStatus to) {}
+
+    public record CashbackRecorded(Cashback.CashbackType type, long amount) {}
+
+    private static <E extends Enum<E>> Map<E, AtomicLong> counters(Class<E> type) {
+        Map<E, AtomicLong> map = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            map.put(value, new AtomicLong());
+        }
+        return map;
+    }
+
+    public AdminStatsDto getSnapshot() {
+        if (!seeded) {
+            reconcile();
+        }
+        long totalVouchers = vouchers.values().stream().mapToLong(AtomicLong::get).sum();
+        return new AdminStatsDto(
+            users.get(),
+            activeProducts.get(),
+            totalVouchers,
+            vouchers.get(Voucher.VoucherStatus.ACTIVE).get(),
+            vouchers.get(Voucher.VoucherStatus.USED).get(),
+            vouchers.get(Voucher.VoucherStatus.EXPIRED).get(),
+            pendingOrders.get(),
+            cashbackTotals.get(Cashback.CashbackType.EARNED).get(),
+            cashbackTotals.get(Cashback.CashbackType.USED).get(),
+            cashbackBalance.get()
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    /**
+     * Hisoblagichlarni bazadagi aggregate qiymatlar bilan tenglashtirish. Event'lar bilan bir vaqtda
+     * ishlaganda qisqa muddatli farq bo'lishi mumkin - u keyingi tekshiruvda tuzaladi.
+     */
+    @Scheduled(fixedDelayString = "${admin.stats.reconcile-interval-ms:300000}",
+               initialDelayString = "${admin.stats.reconcile-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        jobRunRegistry.run("admin-stats-reconcile", this::reconcileCounters);
+    }
+
+    // Farq (drift) yig'indisini qaytaradi
+    private long reconcileCounters() {
+        long drift = 0;
+        drift += reset(users, userRepository.countExcludingAdmins(adminConfig.getExcludedIds()));
+        drift += reset(activeProducts, productRepository.countActiveProducts());
+        drift += reset(pendingOrders, orderRepository.countPendingOrders());
+        drift += reset(cashbackBalance, userRepository.sumCashbackBalance());
+
+        Map<Voucher.VoucherStatus, Long> voucherCounts = new EnumMap<>(Voucher.VoucherStatus.class);
+        for (Object[] row : voucherRepository.countGroupedByStatus()) {
+            voucherCounts.put((Voucher.VoucherStatus) row[0], ((Number) row[1]).longValue());
+        }
+        for (Voucher.VoucherStatus status : Voucher.VoucherStatus.values()) {
+            drift += reset(vouchers.get(status), voucherCounts.getOrDefault(status, 0L));
+        }
+
+        Map<Cashback.CashbackType, Long> cashbackSums = new EnumMap<>(Cashback.CashbackType.class);
+        for (Object[] row : cashbackRepository.sumAmountGroupedByType()) {
+            cashbackSums.put((Cashback.CashbackType) row[0], ((Number) row[1]).longValue());
+        }
+        for (Cashback.CashbackType type : Cashback.CashbackType.values()) {
+            drift += reset(cashbackTotals.get(type), cashbackSums.getOrDefault(type, 0L));
+        }
+
+        if (seeded && drift != 0) {
+            log.warn("Admin stats reconciled with drift of {}", drift);
+        }
+        seeded = true;
+        return drift;
+    }
+
+    private static long reset(AtomicLong counter, long actual) {
+        return Math.abs(counter.getAndSet(actual) - actual);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserCreated(UserCreated event) {
+        if (!adminConfig.isAdmin(event.telegramId())) {
+            users.incrementAndGet();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChanged event) {
+        // Mahsulot o'zgarishlari kam - to'g'ridan-to'g'ri qayta sanaymiz
+        activeProducts.set(productRepository.countActiveProducts());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVoucherStatusChanged(VoucherStatusChanged event) {
+        if (event.from() != null) {
+            vouchers.get(event.from()).addAndGet(-event.count());
+        }
+        vouchers.get(event.to()).addAndGet(event.count());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChanged event) {
+        if (event.from() == Order.OrderStatus.PENDING) {
+            pendingOrders.decrementAndGet();
+        }
+        if (event.to() == Order.OrderStatus.PENDING) {
+            pendingOrders.incrementAndGet();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCashbackRecorded(CashbackRecorded event) {
+        cashbackTotals.get(event.type()).addAndGet(event.amount());
+        boolean debit = event.type() == Cashback.CashbackType.USED || event.type() == Cashback.CashbackType.EXPIRED;
+        cashbackBalance.addAndGet(debit ? -event.amount() : event.amount());
+    }
+}
@@ -0,0 +1,457 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.CopyMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.dto.BroadcastProgressDto;
+import uz.kuponbot.kupon.entity.BroadcastDelivery;
+import uz.kuponbot.kupon.entity.BroadcastJob;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.BroadcastDeliveryRepository;
+import uz.kuponbot.kupon.repository.BroadcastJobRepository;
+
+/**
+ * Broadcast vazifalarini bazada saqlab, sahifalab bajaradi.
+ * Har bir sahifa uchun avval delivery yozuvlari yaratiladi, keyin xabarlar shlyuz orqali
+ * yuboriladi va sahifa tugagach kursor (lastUserId) suriladi. Server qayta ishga tushganda
+ * tugallanmagan vazifalar kursordan davom ettiriladi.
+ * Vazifani bajarayotgan node job_locks dagi "broadcast-job-{id}" lease'ini ushlab turadi: boshqa node
+ * faqat lease muddati o'tgan (egasi o'chgan) vazifani davom ettiradi.
+ * Bajarilish holati (yuborildi/xato/qoldi, tezlik, ETA) listener'larga uzatiladi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BroadcastJobService {
+
+    private final BroadcastJobRepository jobRepository;
+    private final BroadcastDeliveryRepository deliveryRepository;
+    private final UserService userService;
+    private final TelegramSendGateway sendGateway;
+    private final JobLockService jobLockService;
+
+    @Value("${broadcast.page-size:200}")
+    private int pageSize;
+
+    @Value("${broadcast.progress-interval-ms:2000}")
+    private long progressIntervalMs;
+
+    @Value("${broadcast.lease-seconds:60}")
+    private long leaseSeconds;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "broadcast-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Listener'lar (SSE, bot xabari) yuborish thread'larini sekinlashtirmasligi uchun alohida thread'da chaqiriladi
+    private final ExecutorService progressPublisher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "broadcast-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Long, CompletableFuture<BroadcastJob>> completions = new ConcurrentHashMap<>();
+    private final Set<Long> cancelRequested = ConcurrentHashMap.newKeySet();
+    private final Map<Long, RunState> runStates = new ConcurrentHashMap<>();
+    private final Map<Long, List<Consumer<BroadcastProgressDto>>> progressListeners = new ConcurrentHashMap<>();
+
+    public BroadcastJob createTextJob(String text, Long createdBy) {
+        BroadcastJob job = new BroadcastJob();
+        job.setType(BroadcastJob.JobType.TEXT);
+        job.setText(text);
+        job.setCreatedBy(createdBy);
+        return submit(job);
+    }
+
+    public BroadcastJob createMediaJob(Long fromChatId, Integer messageId, Long createdBy) {
+        BroadcastJob job = new BroadcastJob();
+        job.setType(BroadcastJob.JobType.MEDIA);
+        job.setFromChatId(fromChatId);
+        job.setSourceMessageId(messageId);
+        job.setCreatedBy(createdBy);
+        return submit(job);
+    }
+
+    private BroadcastJob submit(BroadcastJob job) {
+        job.setTotalRecipients((int) userService.countRecipients());
+        BroadcastJob saved = jobRepository.save(job);
+        log.info("Broadcast job {} created: type={}, recipients={}", saved.getId(), saved.getType(), saved.getTotalRecipients());
+        // Yangi vazifa - lock qatori hali yo'q, shuning uchun claim doim muvaffaqiyatli
+        JobLockService.Lease lease = claim(saved.getId())
+            .orElseThrow(() -> new RuntimeException("Broadcast job already claimed: " + saved.getId()));
+        enqueue(saved.getId(), lease);
+        return saved;
+    }
+
+    private Optional<JobLockService.Lease> claim(Long jobId) {
+        return jobLockService.tryAcquire("broadcast-job-" + jobId, Duration.ofSeconds(leaseSeconds), Duration.ZERO);
+    }
+
+    private void enqueue(Long jobId, JobLockService.Lease lease) {
+        completions.computeIfAbsent(jobId, id -> new CompletableFuture<>());
+        runner.execute(() -> {
+            BroadcastJob result = null;
+            try {
+                result = runJob(jobId, lease);
+            } finally {
+                // Lease kutayotganlarga natija berilishidan oldin bo'shatiladi
+                lease.release();
+                finish(jobId, result);
+            }
+        });
+    }
+
+    /**
+     * Vazifa tugashini kutish uchun future (vazifa shu serverda bajarilayotgan bo'lsa).
+     */
+    public CompletableFuture<BroadcastJob> completion(Long jobId) {
+        CompletableFuture<BroadcastJob> future = completions.get(jobId);
+        if (future != null) {
+            return future;
+        }
+        return jobRepository.findById(jobId)
+            .filter(BroadcastJob::isFinished)
+            .map(CompletableFuture::completedFuture)
+            .orElseGet(() -> CompletableFuture.failedFuture(new RuntimeException("Broadcast job not running: " + jobId)));
+    }
+
+    public Optional<BroadcastJob> findJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    public List<BroadcastProgressDto> getRecentJobs() {
+        return jobRepository.findTop20ByOrderByIdDesc().stream()
+            .map(job -> {
+                RunState state = runStates.get(job.getId());
+                return state != null ? state.snapshot() : toProgress(job, null);
+            })
+            .toList();
+    }
+
+    /**
+     * Joriy holat: vazifa bajarilayotgan bo'lsa xotiradagi hisoblagichlardan, aks holda bazadan.
+     */
+    public Optional<BroadcastProgressDto> getProgress(Long jobId) {
+        RunState state = runStates.get(jobId);
+        if (state != null) {
+            return Optional.of(state.snapshot());
+        }
+        return jobRepository.findById(jobId).map(job -> toProgress(job, null));
+    }
+
+    /**
+     * Listener'ni faqat shu node'da navbatda turgan yoki bajarilayotgan vazifaga ulaydi. Vazifa tugagan
+     * (yoki boshqa node'da) bo'lsa false qaytadi - yakuniy holatni getProgress orqali olish kerak.
+     */
+    public boolean addProgressListener(Long jobId, Consumer<BroadcastProgressDto> listener) {
+        progressListeners.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(listener);
+        // finish() avval completions'dan o'chiradi, keyin listener'lardan: bu tekshiruvdan keyin
+        // qo'shilgan listener yoki finish() tomonidan, yoki shu yerda olib tashlanadi
+        if (!completions.containsKey(jobId)) {
+            removeProgressListener(jobId, listener);
+            return false;
+        }
+        return true;
+    }
+
+    public void removeProgressListener(Long jobId, Consumer<BroadcastProgressDto> listener) {
+        progressListeners.computeIfPresent(jobId, (id, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void publish(Long jobId, BroadcastProgressDto progress) {
+        List<Consumer<BroadcastProgressDto>> listeners = progressListeners.get(jobId);
+        if (listeners == null) {
+            return;
+        }
+        progressPublisher.execute(() -> {
+            for (Consumer<BroadcastProgressDto> listener : listeners) {
+                try {
+                    listener.accept(progress);
+                } catch (RuntimeException e) {
+                    log.warn("Broadcast progress listener failed for job {}: {}", jobId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    public boolean cancel(Long jobId) {
+        Optional<BroadcastJob> job = jobRepository.findById(jobId);
+        if (job.isEmpty() || job.get().isFinished()) {
+            return false;
+        }
+        cancelRequested.add(jobId);
+        return true;
+    }
+
+    /**
+     * Egasi yo'q tugallanmagan vazifalarni davom ettiradi: ishga tushganda va vaqti-vaqti bilan
+     * (boshqa node o'chib qolgan bo'lsa uning vazifalari lease muddati o'tgach shu yerda olinadi).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${broadcast.resume-check-ms:60000}",
+               initialDelayString = "${broadcast.resume-check-ms:60000}")
+    public void resumeUnfinishedJobs() {
+        List<BroadcastJob> unfinished = jobRepository.findByStatusInOrderByIdAsc(
+            List.of(BroadcastJob.JobStatus.PENDING, BroadcastJob.JobStatus.RUNNING));
+        for (BroadcastJob job : unfinished) {
+            if (completions.containsKey(job.getId())) {
+                continue; // shu node'da navbatda yoki bajarilmoqda
+            }
+            // Lease boshqa node'da va muddati o'tmagan - vazifa u yerda bajarilmoqda
+            Optional<JobLockService.Lease> lease = claim(job.getId());
+            if (lease.isEmpty()) {
+                continue;
+            }
+            // Oldingi egasi o'chgan: u yuborayotgan xabarlar natijasi noma'lum - qayta yubormaymiz
+            int interrupted = deliveryRepository.markInterrupted(job.getId());
+            log.info("Resuming broadcast job {} from user id {} ({} deliveries marked interrupted)",
+                job.getId(), job.getLastUserId(), interrupted);
+            enqueue(job.getId(), lease.get());
+        }
+    }
+
+    private BroadcastJob runJob(Long jobId, JobLockService.Lease lease) {
+        BroadcastJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.isFinished()) {
+            return job;
+        }
+
+        try {
+            job.setStatus(BroadcastJob.JobStatus.RUNNING);
+            if (job.getStartedAt() == null) {
+                job.setStartedAt(LocalDateTime.now());
+            }
+            job = jobRepository.save(job);
+            RunState state = new RunState(job);
+            runStates.put(jobId, state);
+            publish(jobId, state.snapshot());
+
+            while (true) {
+                if (lease.isLost()) {
+                    // Vazifani boshqa node olgan - holatni yozmasdan to'xtaymiz, uni u yakunlaydi
+                    log.warn("Broadcast job {} lease lost, stopping on this node", jobId);
+                    runStates.remove(jobId);
+                    return job;
+                }
+                if (cancelRequested.remove(jobId)) {
+                    job.setStatus(BroadcastJob.JobStatus.CANCELLED);
+                    break;
+                }
+
+                List<User> page = userService.getRecipientPage(job.getLastUserId(), pageSize);
+                if (page.isEmpty()) {
+                    job.setStatus(BroadcastJob.JobStatus.COMPLETED);
+                    break;
+                }
+
+                processPage(job, page, state);
+                job.setLastUserId(page.get(page.size() - 1).getId());
+                refreshCounts(job);
+                job = jobRepository.save(job);
+                state.sync(job);
+                publish(jobId, state.snapshot());
+            }
+        } catch (Exception e) {
+            log.error("Broadcast job {} failed: ", jobId, e);
+            job.setStatus(BroadcastJob.JobStatus.FAILED);
+        }
+
+        refreshCounts(job);
+        job.setFinishedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        log.info("Broadcast job {} {}: {} sent, {} failed", jobId, job.getStatus(), job.getSentCount(), job.getFailedCount());
+        RunState state = runStates.remove(jobId);
+        publish(jobId, toProgress(job, state));
+        return job;
+    }
+
+    private void processPage(BroadcastJob job, List<User> page, RunState state) {
+        List<Long> userIds = page.stream().map(User::getId).toList();
+        Set<Long> alreadyHandled = new HashSet<>(deliveryRepository.findExistingUserIds(job.getId(), userIds));
+
+        // Yuborishdan oldin yozuv yaratiladi - yozuvi bor foydalanuvchiga qayta yuborilmaydi
+        List<BroadcastDelivery> deliveries = new ArrayList<>();
+        for (User user : page) {
+            if (alreadyHandled.contains(user.getId())) {
+                continue;
+            }
+            BroadcastDelivery delivery = new BroadcastDelivery();
+            delivery.setJob(job);
+            delivery.setUserId(user.getId());
+            delivery.setTelegramId(user.getTelegramId());
+            deliveries.add(delivery);
+        }
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        deliveryRepository.saveAll(deliveries);
+
+        Set<Long> sentUserIds = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (BroadcastDelivery delivery : deliveries) {
+            futures.add(send(job, delivery.getTelegramId()).handle((result, error) -> {
+                if (error == null) {
+                    sentUserIds.add(delivery.getUserId());
+                    state.sent.incrementAndGet();
+                } else {
+                    deliveryRepository.markFailed(job.getId(), delivery.getUserId(), truncate(error.getMessage()));
+                    state.failed.incrementAndGet();
+                }
+                publishThrottled(job.getId(), state);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        if (!sentUserIds.isEmpty()) {
+            deliveryRepository.markSent(job.getId(), sentUserIds, LocalDateTime.now());
+        }
+    }
+
+    private CompletableFuture<?> send(BroadcastJob job, Long telegramId) {
+        if (job.getType() == BroadcastJob.JobType.MEDIA) {
+            CopyMessage copyMessage = new CopyMessage();
+            copyMessage.setChatId(telegramId.toString());
+            copyMessage.setFromChatId(job.getFromChatId().toString());
+            copyMessage.setMessageId(job.getSourceMessageId());
+            return sendGateway.send(copyMessage, TelegramSendGateway.Priority.BROADCAST);
+        }
+
+        SendMessage sendMessage = new SendMessage();
+        sendMessage.setChatId(telegramId);
+        sendMessage.setText(job.getText());
+        return sendGateway.send(sendMessage, TelegramSendGateway.Priority.BROADCAST);
+    }
+
+    private void refreshCounts(BroadcastJob job) {
+        int sent = 0;
+        int failed = 0;
+        for (Object[] row : deliveryRepository.countByStatus(job.getId())) {
+            BroadcastDelivery.DeliveryStatus status = (BroadcastDelivery.DeliveryStatus) row[0];
+            int count = ((Number) row[1]).intValue();
+            if (status == BroadcastDelivery.DeliveryStatus.SENT) {
+                sent += count;
+            } else if (status != BroadcastDelivery.DeliveryStatus.PENDING) {
+                failed += count;
+            }
+        }
+        job.setSentCount(sent);
+        job.setFailedCount(failed);
+    }
+
+    private void publishThrottled(Long jobId, RunState state) {
+        long now = System.nanoTime();
+        long last = state.lastPublishedAt.get();
+        if (now - last >= TimeUnit.MILLISECONDS.toNanos(progressIntervalMs)
+                && state.lastPublishedAt.compareAndSet(last, now)) {
+            publish(jobId, state.snapshot());
+        }
+    }
+
+    private void finish(Long jobId, BroadcastJob job) {
+        CompletableFuture<BroadcastJob> future = completions.remove(jobId);
+        progressListeners.remove(jobId);
+        if (future != null) {
+            future.complete(job);
+        }
+    }
+
+    private static BroadcastProgressDto toProgress(BroadcastJob job, RunState state) {
+        int sent = job.getSentCount();
+        int failed = job.getFailedCount();
+        double rate = state != null ? state.rate(sent + failed) : 0;
+        return progress(job, job.getStatus(), sent, failed, rate);
+    }
+
+    private static BroadcastProgressDto progress(BroadcastJob job, BroadcastJob.JobStatus status, int sent, int failed, double rate) {
+        int remaining = job.isFinished() ? 0 : Math.max(0, job.getTotalRecipients() - sent - failed);
+        Long eta = rate > 0 ? Math.round(remaining / rate) : null;
+        return new BroadcastProgressDto(job.getId(), status.name(), job.getTotalRecipients(), sent, failed,
+            remaining, Math.round(rate * 10) / 10.0, eta, job.getStartedAt(), job.getFinishedAt());
+    }
+
+    /**
+     * Bajarilayotgan vazifaning xotiradagi hisoblagichlari. Sahifa tugaganda bazadagi qiymatlar bilan tenglashtiriladi.
+     */
+    private static final class RunState {
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong lastPublishedAt = new AtomicLong(System.nanoTime());
+        final long startedAt = System.nanoTime();
+        final int processedAtStart;
+        volatile BroadcastJob job;
+
+        RunState(BroadcastJob job) {
+            this.processedAtStart = job.getProcessedCount();
+            sync(job);
+        }
+
+        void sync(BroadcastJob job) {
+            this.job = job;
+            sent.set(job.getSentCount());
+            failed.set(job.getFailedCount());
+        }
+
+        double rate(int processed) {
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            return seconds > 0 ? Math.max(0, processed - processedAtStart) / seconds : 0;
+        }
+
+        BroadcastProgressDto snapshot() {
+            int currentSent = sent.get();
+            int currentFailed = failed.get();
+            return progress(job, BroadcastJob.JobStatus.RUNNING, currentSent, currentFailed,
+                rate(currentSent + currentFailed));
+        }
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        progressPublisher.shutdown();
+        try {
+            runner.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * Muddati o'tgan keshbek lotlarini hisobdan chiqaradi.
+ *
+ * Har bir partiya (batchSize ta foydalanuvchi) alohida tranzaksiyada, bir nechta set-based so'rov
+ * bilan ishlanadi: user qatorlari bloklanadi, har bir foydalanuvchiga bitta EXPIRED yozuv qo'shiladi,
+ * balansdan qoldiqlar yig'indisi yechiladi va lotlar EXPIRED holatiga o'tkaziladi.
+ *
+ * Ishga tushganda V15 migratsiyasi qiladigan ishni ddl-auto bilan yaratilgan bazalar uchun ham bajaradi:
+ * eski lotlarga balansni taqsimlaydi va enum CHECK cheklovlarini olib tashlaydi.
+ */
+@Service
+@Slf4j
+public class CashbackExpiryService {
+    
+    static final String EXPIRY_DESCRIPTION = "Muddati o'tgan keshbek";
+    // Eski lotlarga kamida shuncha muhlat beriladi (V15 bilan bir xil)
+    private static final int BACKFILL_GRACE_DAYS = 30;
+    private static final String STALE_ENUM_CHECKS_SQL =
+        "SELECT LOWER(constraint_name) FROM information_schema.table_constraints " +
+        "WHERE LOWER(table_name) = 'cashbacks' AND constraint_type = 'CHECK' " +
+        "AND LOWER(constraint_name) IN ('cashbacks_type_check', 'cashbacks_status_check')";
+    
+    private final CashbackRepository cashbackRepository;
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobRunRegistry jobRunRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int lotValidityDays;
+    
+    public CashbackExpiryService(CashbackRepository cashbackRepository,
+                                 UserRepository userRepository,
+                                 UserCache userCache,
+                                 ApplicationEventPublisher eventPublisher,
+                                 JobRunRegistry jobRunRegistry,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${cashback-expiry.batch-size:500}") int batchSize,
+                                 @Value("${cashback.lot-validity-days:365}") int lotValidityDays) {
+        this.cashbackRepository = cashbackRepository;
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.eventPublisher = eventPublisher;
+        this.jobRunRegistry = jobRunRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.lotValidityDays = lotValidityDays;
+    }
+    
+    // Har kuni 03:20 da
+    @Scheduled(cron = "0 20 3 * * *")
+    @ClusterLocked("cashback-expiry")
+    public void expireScheduled() {
+        jobRunRegistry.run("cashback-expiry", this::expireLots);
+    }
+    
+    /**
+     * Muddati o'tgan barcha qoldiqlarni hisobdan chiqaradi, chiqarilgan jami summani qaytaradi
+     */
+    public long expireLots() {
+        LocalDateTime now = LocalDateTime.now();
+        long expired = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Long> userIds = cashbackRepository.findUserIdsWithExpiredLots(now, afterId, batchSize);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            Long amount = transactionTemplate.execute(status -> expireBatch(userIds, now));
+            expired += amount;
+            afterId = userIds.get(userIds.size() - 1);
+            if (userIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (expired > 0) {
+            log.info("Cashback expiry: {} so'm expired", expired);
+        }
+        return expired;
+    }
+    
+    /**
+     * remaining_amount/expires_at to'ldirilmagan eski lotlarni to'ldiradi (V15 bilan bir xil qoida).
+     * Takror ishga tushirish xavfsiz: faqat remaining_amount IS NULL lotlar olinadi.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLots() {
+        dropStaleEnumChecks();
+        LocalDateTime now = LocalDateTime.now();
+        long lots = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Long> userIds = cashbackRepository.findUserIdsWithUnallocatedLots(afterId, batchSize);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            lots += transactionTemplate.execute(status -> backfillBatch(userIds, now));
+            afterId = userIds.get(userIds.size() - 1);
+            if (userIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (lots > 0) {
+            log.info("Backfilled remaining amount/expiry for {} cashback lots", lots);
+        }
+    }
+    
+    // ddl-auto=update eski CHECK'ni yangilamaydi va u 'EXPIRED' qiymatini rad etadi (V15 ham shuni qiladi)
+    // Oddiy ishga tushishda DDL yo'q: ALTER TABLE faqat cheklov haqiqatan mavjud bo'lsa (bir marta) bajariladi
+    private void dropStaleEnumChecks() {
+        try {
+            List<String> stale = jdbcTemplate.queryForList(STALE_ENUM_CHECKS_SQL, String.class);
+            for (String constraint : stale) {
+                jdbcTemplate.execute("ALTER TABLE cashbacks DROP CONSTRAINT IF EXISTS " + constraint);
+                log.info("Dropped stale check constraint {} on cashbacks", constraint);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not drop cashbacks enum check constraints, apply V15 manually: {}", e.getMessage());
+        }
+    }
+    
+    private long backfillBatch(List<Long> userIds, LocalDateTime now) {
+        // Parallel useCashback va boshqa node'dagi backfill bilan poyga bo'lmasligi uchun
+        userRepository.lockTelegramIdsByIdIn(userIds);
+        Map<Long, Long> available = new HashMap<>();
+        userRepository.findCashbackBalancesByIdIn(userIds)
+            .forEach(row -> available.put((Long) row[0], ((Integer) row[1]).longValue()));
+        cashbackRepository.sumAllocatedRemainingByUserIdIn(userIds)
+            .forEach(row -> available.merge((Long) row[0], -((Number) row[1]).longValue(), Long::sum));
+        
+        LocalDateTime minExpiresAt = now.plusDays(BACKFILL_GRACE_DAYS);
+        List<Cashback> lots = cashbackRepository.findUnallocatedLots(userIds);
+        for (Cashback lot : lots) {
+            Long userId = lot.getUser().getId();
+            long left = Math.max(0L, available.getOrDefault(userId, 0L));
+            int remaining = (int) Math.min(lot.getCashbackAmount(), left);
+            available.put(userId, left - remaining);
+            
+            lot.setRemainingAmount(remaining);
+            LocalDateTime expiresAt = lot.getCreatedAt().plusDays(lotValidityDays);
+            lot.setExpiresAt(expiresAt.isBefore(minExpiresAt) ? minExpiresAt : expiresAt);
+            if (remaining == 0) {
+                lot.setStatus(Cashback.CashbackStatus.USED);
+                lot.setUsedAt(lot.getUsedAt() != null ? lot.getUsedAt() : now);
+            }
+        }
+        cashbackRepository.saveAll(lots);
+        return lots.size();
+    }
+    
+    private long expireBatch(List<Long> userIds, LocalDateTime now) {
+        // Parallel useCashback bilan poyga bo'lmasligi uchun: lotlar o'qilishidan oldin user qatorlari bloklanadi
+        List<Long> telegramIds = userRepository.lockTelegramIdsByIdIn(userIds);
+        long amount = cashbackRepository.sumExpiredRemaining(userIds, now);
+        if (amount == 0) {
+            return 0L;
+        }
+        
+        // Tartib muhim: yozuv va balans hali ACTIVE bo'lgan lotlar bo'yicha hisoblanadi, oxirida lotlar yopiladi
+        cashbackRepository.insertExpiryEntries(userIds, now, EXPIRY_DESCRIPTION);
+        userRepository.subtractExpiredLots(userIds, now);
+        int lots = cashbackRepository.markLotsExpired(userIds, now);
+        
+        telegramIds.forEach(userCache::evictAfterCommit);
+        eventPublisher.publishEvent(new AdminStatsService.CashbackRecorded(Cashback.CashbackType.EXPIRED, amount));
+        
+        log.debug("Cashback expiry batch: {} users, {} lots, {} so'm", userIds.size(), lots, amount);
+        return amount;
+    }
+}
@@ -0,0 +1,143 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.entity.CashbackCheckpoint;
+import uz.kuponbot.kupon.repository.CashbackCheckpointRepository;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+
+/**
+ * users.cashback_balance ni cashbacks daftari bilan solishtiradi.
+ *
+ * Har bir foydalanuvchi uchun checkpoint saqlanadi (daftar yig'indisi + oxirgi yozuv id si), shuning
+ * uchun har soatlik tekshiruv faqat checkpoint'dan keyingi yozuvlarni yig'adi. Checkpoint faqat
+ * settle-lag dan oldin yozilgan yozuvlargacha suriladi: kechroq commit bo'lgan tranzaksiyaning
+ * kichikroq id li yozuvi o'tkazib yuborilmasligi uchun.
+ */
+@Service
+@Slf4j
+public class CashbackReconciliationService {
+    
+    private final CashbackCheckpointRepository checkpointRepository;
+    private final CashbackRepository cashbackRepository;
+    private final JobRunRegistry jobRunRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+    private final int settleLagMinutes;
+    
+    public record ReconciliationResult(long usersChecked, long driftCount) {}
+    
+    public record CashbackDrift(Long telegramId, String fullName, Integer userBalance,
+                                Long ledgerBalance, Long drift, LocalDateTime checkedAt) {}
+    
+    public CashbackReconciliationService(CashbackCheckpointRepository checkpointRepository,
+                                         CashbackRepository cashbackRepository,
+                                         JobRunRegistry jobRunRegistry,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${cashback-reconcile.page-size:500}") int pageSize,
+                                         @Value("${cashback-reconcile.settle-lag-minutes:5}") int settleLagMinutes) {
+        this.checkpointRepository = checkpointRepository;
+        this.cashbackRepository = cashbackRepository;
+        this.jobRunRegistry = jobRunRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pageSize = pageSize;
+        this.settleLagMinutes = settleLagMinutes;
+    }
+    
+    // Har soatda: faqat oxirgi checkpoint'dan keyingi yozuvlar yig'iladi
+    @Scheduled(cron = "0 15 * * * *")
+    @ClusterLocked("cashback-reconcile")
+    public void reconcileScheduled() {
+        jobRunRegistry.run("cashback-reconcile", () -> reconcile(false).usersChecked());
+    }
+    
+    /**
+     * Barcha foydalanuvchilarni sahifalab tekshiradi. full = true bo'lsa checkpoint'lar e'tiborga
+     * olinmaydi va daftar boshidan qayta yig'iladi (to'liq audit).
+     */
+    public ReconciliationResult reconcile(boolean full) {
+        long watermark = cashbackRepository.findMaxIdCreatedBefore(LocalDateTime.now().minusMinutes(settleLagMinutes));
+        long checked = 0;
+        long drifts = 0;
+        long afterId = 0L;
+        while (true) {
+            long from = afterId;
+            List<Object[]> rows = transactionTemplate.execute(status -> {
+                List<Object[]> page = checkpointRepository.findReconciliationPage(from, watermark, full, pageSize);
+                if (!page.isEmpty()) {
+                    applyPage(page, watermark, full);
+                }
+                return page;
+            });
+            if (rows.isEmpty()) {
+                break;
+            }
+            checked += rows.size();
+            drifts += rows.stream().filter(row -> drift(row, full) != 0).count();
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+        }
+        if (drifts > 0) {
+            log.warn("Cashback reconciliation: {} of {} users have balance drift", drifts, checked);
+        }
+        return new ReconciliationResult(checked, drifts);
+    }
+    
+    public List<CashbackDrift> getDrifts() {
+        return checkpointRepository.findDrifts().stream()
+            .map(row -> new CashbackDrift(
+                (Long) row[0],
+                (String) row[1],
+                (Integer) row[2],
+                (Long) row[3],
+                (Long) row[4],
+                (LocalDateTime) row[5]))
+            .collect(Collectors.toList());
+    }
+    
+    private void applyPage(List<Object[]> page, long watermark, boolean full) {
+        List<Long> userIds = page.stream().map(row -> ((Number) row[0]).longValue()).toList();
+        Map<Long, CashbackCheckpoint> existing = checkpointRepository.findByUserIdIn(userIds).stream()
+            .collect(Collectors.toMap(CashbackCheckpoint::getUserId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        
+        for (Object[] row : page) {
+            Long userId = ((Number) row[0]).longValue();
+            CashbackCheckpoint checkpoint = existing.get(userId);
+            if (checkpoint == null) {
+                checkpoint = new CashbackCheckpoint();
+                checkpoint.setUserId(userId);
+            }
+            long lastId = full ? 0L : checkpoint.getLastCashbackId();
+            checkpoint.setLedgerBalance(base(row, full) + ((Number) row[4]).longValue());
+            checkpoint.setLastCashbackId(Math.max(lastId, watermark));
+            checkpoint.setUserBalance(balance(row));
+            checkpoint.setDrift(drift(row, full));
+            checkpoint.setCheckedAt(now);
+            checkpointRepository.save(checkpoint);
+        }
+    }
+    
+    // users.cashback_balance - (checkpoint + barcha yangi yozuvlar)
+    private static long drift(Object[] row, boolean full) {
+        return balance(row) - (base(row, full) + ((Number) row[5]).longValue());
+    }
+    
+    private static long base(Object[] row, boolean full) {
+        return full || row[2] == null ? 0L : ((Number) row[2]).longValue();
+    }
+    
+    private static int balance(Object[] row) {
+        return row[1] == null ? 0 : ((Number) row[1]).intValue();
+    }
+}
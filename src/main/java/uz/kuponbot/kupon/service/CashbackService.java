@@ -2,8 +2,14 @@ package uz.kuponbot.kupon.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,8 +30,19 @@ public class CashbackService {
     
     private final CashbackRepository cashbackRepository;
     private final UserRepository userRepository;
-    private final BroadcastService broadcastService;
-    private static final Double DEFAULT_CASHBACK_PERCENTAGE = 5.0;
+    private final NotificationOutbox notificationOutbox;
+    private final UserCache userCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageTemplates messageTemplates;
+    private final ScheduledMessageQueue scheduledMessageQueue;
+    static final Double DEFAULT_CASHBACK_PERCENTAGE = 5.0;
+    private static final int PURCHASE_PAGE_SIZE = 200;
+    private static final int MAX_BALANCE_PAGE_SIZE = 200;
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+    
+    // EARNED/REFUNDED lotning amal qilish muddati (kun)
+    @Value("${cashback.lot-validity-days:365}")
+    private int lotValidityDays;
     
     /**
      * Yangi harid qo'shish va keshbek hisoblash
@@ -36,7 +53,7 @@ public class CashbackService {
             .orElseThrow(() -> new RuntimeException("User not found"));
         
         // Keshbek hisoblash (5%)
-        Integer cashbackAmount = (int) Math.round(purchaseAmount * DEFAULT_CASHBACK_PERCENTAGE / 100);
+        Integer cashbackAmount = calculateCashback(purchaseAmount);
         
         // Cashback yaratish
         Cashback cashback = new Cashback();
@@ -48,71 +65,72 @@ public class CashbackService {
         cashback.setStatus(Cashback.CashbackStatus.ACTIVE);
         cashback.setDescription(description);
         cashback.setCreatedAt(LocalDateTime.now());
+        openLot(cashback);
         
         cashback = cashbackRepository.save(cashback);
         
-        // User balansini yangilash
-        user.setCashbackBalance(user.getCashbackBalance() + cashbackAmount);
-        userRepository.save(user);
+        // 3 va 15 kunlik follow-up xabarlar harid bilan bitta tranzaksiyada navbatga yoziladi
+        scheduledMessageQueue.schedulePurchaseFollowUps(cashback);
+        
+        // User balansini yangilash (atomik UPDATE, yozuv bilan bitta tranzaksiyada)
+        Integer newBalance = creditBalance(user, cashbackAmount);
+        userCache.evictAfterCommit(telegramId);
+        
+        eventPublisher.publishEvent(new AdminStatsService.CashbackRecorded(Cashback.CashbackType.EARNED, cashbackAmount));
         
         log.info("Cashback added for user {}: {} so'm ({}%)", telegramId, cashbackAmount, DEFAULT_CASHBACK_PERCENTAGE);
         
         // Userga notification yuborish
-        sendCashbackNotification(user, purchaseAmount, cashbackAmount);
+        sendCashbackNotification(user, purchaseAmount, cashbackAmount, newBalance);
         
         return convertToDto(cashback);
     }
     
+    /**
+     * Yozuvni lot sifatida ochadi: butun summa ishlatilmagan, muddati createdAt + lotValidityDays
+     */
+    private void openLot(Cashback cashback) {
+        cashback.setRemainingAmount(cashback.getCashbackAmount());
+        cashback.setExpiresAt(cashback.getCreatedAt().plusDays(lotValidityDays));
+    }
+    
+    static int calculateCashback(int purchaseAmount) {
+        return (int) Math.round(purchaseAmount * DEFAULT_CASHBACK_PERCENTAGE / 100);
+    }
+    
     /**
      * Keshbek berilganligi haqida userga xabar yuborish
      */
-    private void sendCashbackNotification(User user, Integer purchaseAmount, Integer cashbackAmount) {
-        try {
-            String message = formatCashbackMessage(user, purchaseAmount, cashbackAmount);
-            broadcastService.sendSingleMessage(user.getTelegramId(), message);
-            log.info("Cashback notification sent to user {}", user.getTelegramId());
-        } catch (Exception e) {
-            log.error("Error sending cashback notification to user {}: ", user.getTelegramId(), e);
-        }
+    private void sendCashbackNotification(User user, Integer purchaseAmount, Integer cashbackAmount, Integer balance) {
+        // Outbox'ga shu tranzaksiyada yoziladi, OutboxRelay commit'dan keyin yuboradi
+        String message = formatCashbackMessage(user, purchaseAmount, cashbackAmount, balance);
+        notificationOutbox.enqueue(user.getTelegramId(), message);
     }
     
     /**
      * Keshbek xabarini formatlash (3 tilda)
      */
-    private String formatCashbackMessage(User user, Integer purchaseAmount, Integer cashbackAmount) {
-        String formattedPurchase = String.format("%,d", purchaseAmount);
-        String formattedCashback = String.format("%,d", cashbackAmount);
-        String formattedTotal = String.format("%,d", user.getCashbackBalance());
-        
-        return switch (user.getLanguage()) {
-            case "uz_cyrl" -> String.format(
-                "🎉 Табриклаймиз!\n\n" +
-                "Сиз Aysi Optikadan амалга оширган %s сўм харидингиз учун миннатдорчилик сифатида сизга кешбек тақдим этилди.\n\n" +
-                "💰 Берилган кешбек: %s сўм\n" +
-                "💳 Жами йиғилган кешбек: %s сўм\n\n" +
-                "Ушбу кешбекдан кейинги харидларингизда кўзойнак, линза ва бошқа оптик маҳсулотлар учун фойдаланишингиз мумкин.\n\n" +
-                "Сизнинг кўз саломатлигингиз биз учун муҳим! 👓✨",
-                formattedPurchase, formattedCashback, formattedTotal
-            );
-            case "ru" -> String.format(
-                "🎉 Поздравляем!\n\n" +
-                "В знак благодарности за вашу покупку в Aysi Optika на сумму %s сум вам начислен кешбэк.\n\n" +
-                "💰 Начислено кешбэка: %s сум\n" +
-                "💳 Всего накоплено кешбэка: %s сум\n\n" +
-                "Вы можете использовать этот кешбэк при следующих покупках очков, линз и других оптических товаров.\n\n" +
-                "Здоровье ваших глаз важно для нас! 👓✨",
-                formattedPurchase, formattedCashback, formattedTotal
-            );
-            default -> String.format(
-                "🎉 Tabriklaymiz!\n\n" +
-                "Siz Aysi Optikadan amalga oshirgan %s so'm xaridingiz uchun minnatdorchilik sifatida sizga keshbek taqdim etildi.\n\n" +
-                "💰 Berilgan keshbek: %s so'm\n" +
-                "💳 Jami yig'ilgan keshbek: %s so'm\n\n" +
-                "Ushbu keshbekdan keyingi xaridlaringizda ko'zoynak, linza va boshqa optik mahsulotlar uchun foydalanishingiz mumkin.\n\n" +
-                "Sizning ko'z salomatligingiz biz uchun muhim! 👓✨",
-                formattedPurchase, formattedCashback, formattedTotal
-            );
-        };
+    private String formatCashbackMessage(User user, Integer purchaseAmount, Integer cashbackAmount, Integer balance) {
+        return messageTemplates.render("cashback.earned", user.getLanguage(),
+            purchaseAmount, cashbackAmount, balance);
+    }
+    
+    /**
+     * (from, to) oralig'idagi haridlarni (EARNED) id bo'yicha sahifalab aylanib chiqadi
+     */
+    public void forEachPurchaseBetween(LocalDateTime from, LocalDateTime to, Consumer<Cashback> action) {
+        long afterId = 0L;
+        while (true) {
+            List<Cashback> page = cashbackRepository.findPageByTypeCreatedBetween(
+                Cashback.CashbackType.EARNED, from, to, afterId, PageRequest.of(0, PURCHASE_PAGE_SIZE));
+            for (Cashback cashback : page) {
+                action.accept(cashback);
+            }
+            if (page.size() < PURCHASE_PAGE_SIZE) {
+                return;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
     }
     
     /**
@@ -120,10 +138,12 @@ public class CashbackService {
      */
     @Transactional
     public CashbackDto useCashback(Long telegramId, Integer amount, String description) {
+        requirePositive(amount);
         User user = userRepository.findByTelegramId(telegramId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
-        if (user.getCashbackBalance() < amount) {
+        // Tekshiruv va yechish bitta shartli UPDATE: parallel kassirlar balansni minusga tushira olmaydi
+        if (userRepository.subtractCashbackBalance(user.getId(), amount) == 0) {
             throw new RuntimeException("Insufficient cashback balance");
         }
         
@@ -141,20 +161,46 @@ public class CashbackService {
         
         cashback = cashbackRepository.save(cashback);
         
-        // User balansini kamaytirish
-        user.setCashbackBalance(user.getCashbackBalance() - amount);
-        userRepository.save(user);
+        // Lotlar FIFO tartibida yechiladi (user qatori yuqoridagi UPDATE bilan bloklangan)
+        drawDownLots(user, amount, cashback.getUsedAt());
+        
+        userCache.evictAfterCommit(telegramId);
+        
+        eventPublisher.publishEvent(new AdminStatsService.CashbackRecorded(Cashback.CashbackType.USED, amount));
         
         log.info("Cashback used by user {}: {} so'm", telegramId, amount);
         
         return convertToDto(cashback);
     }
     
+    /**
+     * Ishlatilgan summani eng oldin muddati tugaydigan lotlardan boshlab yechadi;
+     * to'liq ishlatilgan lot USED holatiga o'tadi
+     */
+    private void drawDownLots(User user, int amount, LocalDateTime usedAt) {
+        int left = amount;
+        for (Cashback lot : cashbackRepository.findSpendableLots(user)) {
+            int taken = Math.min(left, lot.getRemainingAmount());
+            lot.setRemainingAmount(lot.getRemainingAmount() - taken);
+            if (lot.getRemainingAmount() == 0) {
+                lot.setStatus(Cashback.CashbackStatus.USED);
+                lot.setUsedAt(usedAt);
+            }
+            left -= taken;
+            if (left == 0) {
+                return;
+            }
+        }
+        // Balans lotlardan katta - faqat migratsiyadan oldingi nomuvofiq ma'lumotda bo'lishi mumkin
+        log.warn("Cashback lots of user {} do not cover used amount: {} so'm left", user.getTelegramId(), left);
+    }
+    
     /**
      * Keshbekni qaytarish
      */
     @Transactional
     public CashbackDto refundCashback(Long telegramId, Integer amount, String description) {
+        requirePositive(amount);
         User user = userRepository.findByTelegramId(telegramId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
@@ -168,12 +214,15 @@ public class CashbackService {
         cashback.setStatus(Cashback.CashbackStatus.ACTIVE);
         cashback.setDescription(description);
         cashback.setCreatedAt(LocalDateTime.now());
+        openLot(cashback);
         
         cashback = cashbackRepository.save(cashback);
         
         // User balansini oshirish
-        user.setCashbackBalance(user.getCashbackBalance() + amount);
-        userRepository.save(user);
+        creditBalance(user, amount);
+        userCache.evictAfterCommit(telegramId);
+        
+        eventPublisher.publishEvent(new AdminStatsService.CashbackRecorded(Cashback.CashbackType.REFUNDED, amount));
         
         log.info("Cashback refunded to user {}: {} so'm", telegramId, amount);
         
@@ -194,60 +243,86 @@ public class CashbackService {
     }
     
     /**
-     * Barcha foydalanuvchilarning keshbek balansini olish
+     * Foydalanuvchilar keshbek balansi hisoboti - bitta GROUP BY so'rov, balans bo'yicha saralangan sahifa
      */
-    public List<UserCashbackBalance> getAllUsersCashbackBalance() {
-        return userRepository.findAll()
-            .stream()
-            .filter(user -> user.getState() == User.UserState.REGISTERED)
-            .map(user -> new UserCashbackBalance(
-                user.getTelegramId(),
-                user.getFullName(),
-                user.getPhoneNumber(),
-                user.getCashbackBalance(),
-                getTotalEarned(user),
-                getTotalUsed(user)
-            ))
+    @Transactional(readOnly = true)
+    public UserCashbackBalancePage getUsersCashbackBalancePage(int page, int size, Sort.Direction direction) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_BALANCE_PAGE_SIZE);
+        Sort sort = Sort.by(direction, "cashbackBalance").and(Sort.by(Sort.Direction.ASC, "id"));
+        Page<Object[]> rows = cashbackRepository.findBalanceReport(User.UserState.REGISTERED,
+            PageRequest.of(Math.max(page, 0), pageSize, sort));
+        List<UserCashbackBalance> content = rows.getContent().stream()
+            .map(row -> new UserCashbackBalance(
+                (Long) row[0],
+                (String) row[1],
+                (String) row[2],
+                (Integer) row[3],
+                ((Number) row[4]).intValue(),
+                ((Number) row[5]).intValue()))
             .collect(Collectors.toList());
+        return new UserCashbackBalancePage(content, rows.getNumber(), rows.getSize(),
+            rows.getTotalElements(), rows.getTotalPages());
     }
     
     /**
-     * Barcha keshbek tarixini olish
+     * Keshbek tarixining bitta sahifasi (keyset). cursor - oldingi sahifadagi nextCursor, birinchi sahifa uchun null.
+     * Kursor buzilgan bo'lsa IllegalArgumentException (controller 400 qaytaradi)
      */
-    public List<CashbackDto> getAllCashbackHistory() {
-        return cashbackRepository.findAllByOrderByCreatedAtDesc()
-            .stream()
-            .map(this::convertToDto)
-            .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CashbackHistoryPage getCashbackHistoryPage(String cursor, int size, Cashback.CashbackType type,
+                                                      Cashback.CashbackStatus status, LocalDateTime from,
+                                                      LocalDateTime to, Long telegramId) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+        // Birinchi sahifa: kursor barcha yozuvlardan keyinroq
+        LocalDateTime beforeCreatedAt = LocalDateTime.now().plusYears(1);
+        Long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                beforeCreatedAt = LocalDateTime.parse(cursor.substring(0, separator));
+                beforeId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+        
+        // Keyingi sahifa borligini bilish uchun bitta ortiqcha qator olinadi
+        List<CashbackDto> rows = cashbackRepository.findHistoryPage(beforeCreatedAt, beforeId, type, status,
+            from, to, telegramId, PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            CashbackDto last = rows.get(pageSize - 1);
+            nextCursor = last.getCreatedAt() + "_" + last.getId();
+        }
+        return new CashbackHistoryPage(rows, nextCursor);
     }
     
     /**
      * User uchun keshbek statistikasini olish
      */
     public UserCashbackStats getUserCashbackStats(User user) {
-        Integer totalEarned = getTotalEarned(user);
-        Integer totalUsed = getTotalUsed(user);
+        Object[] totals = cashbackRepository.sumEarnedAndUsed(user).get(0);
         return new UserCashbackStats(
             user.getCashbackBalance(),
-            totalEarned,
-            totalUsed
+            ((Number) totals[0]).intValue(),
+            ((Number) totals[1]).intValue()
         );
     }
     
-    private Integer getTotalEarned(User user) {
-        return cashbackRepository.findByUserAndStatusOrderByCreatedAtDesc(user, Cashback.CashbackStatus.ACTIVE)
-            .stream()
-            .filter(c -> c.getType() == Cashback.CashbackType.EARNED)
-            .mapToInt(Cashback::getCashbackAmount)
-            .sum();
+    /**
+     * Balansni atomik oshiradi va yangi qiymatini qaytaradi. UPDATE qatorni tranzaksiya oxirigacha
+     * bloklaydi, shuning uchun keyingi SELECT aynan shu o'zgarishdan keyingi balansni ko'radi.
+     */
+    private Integer creditBalance(User user, int amount) {
+        userRepository.addCashbackBalance(user.getId(), amount);
+        return userRepository.findCashbackBalanceById(user.getId());
     }
     
-    private Integer getTotalUsed(User user) {
-        return cashbackRepository.findByUserAndStatusOrderByCreatedAtDesc(user, Cashback.CashbackStatus.USED)
-            .stream()
-            .filter(c -> c.getType() == Cashback.CashbackType.USED)
-            .mapToInt(Cashback::getCashbackAmount)
-            .sum();
+    private static void requirePositive(Integer amount) {
+        if (amount == null || amount <= 0) {
+            throw new RuntimeException("Amount must be positive");
+        }
     }
     
     private CashbackDto convertToDto(Cashback cashback) {
@@ -279,6 +354,23 @@ public class CashbackService {
         private Integer totalUsed;
     }
     
+    @Data
+    @AllArgsConstructor
+    public static class UserCashbackBalancePage {
+        private List<UserCashbackBalance> content;
+        private int page;
+        private int size;
+        private long totalElements;
+        private int totalPages;
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class CashbackHistoryPage {
+        private List<CashbackDto> items;
+        private String nextCursor; // null - oxirgi sahifa
+    }
+    
     @Data
     @AllArgsConstructor
     public static class UserCashbackStats {
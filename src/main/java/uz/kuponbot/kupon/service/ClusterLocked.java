@@ -0,0 +1,27 @@
+package uz.kuponbot.kupon.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Metodni klaster bo'yicha bitta node'da ishga tushirish. Lock olinmasa metod chaqirilmaydi.
+ *
+ * leaseSeconds - heartbeat to'xtasa (node o'chsa) lock shuncha vaqtdan keyin bo'shaydi.
+ * minHoldSeconds - tez tugagan job'dan keyin ham lock kamida shuncha ushlab turiladi, shunda
+ * soati biroz orqada qolgan boshqa node aynan shu cron ishga tushirishni qaytarmaydi.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ClusterLocked {
+    
+    /** Lock nomi (job_locks.name) */
+    String value();
+    
+    long leaseSeconds() default 30;
+    
+    long minHoldSeconds() default 60;
+}
@@ -0,0 +1,128 @@
+package uz.kuponbot.kupon.service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.repository.JobLockRepository;
+
+/**
+ * job_locks jadvalidagi lease'lar orqali klaster bo'yicha job lock.
+ *
+ * Lock olingach har leaseSeconds/3 da heartbeat lock_until ni uzaytiradi. Node o'chib qolsa
+ * heartbeat to'xtaydi va lock leaseSeconds ichida boshqa node'ga o'tadi.
+ */
+@Service
+@Slf4j
+public class JobLockService {
+    
+    private final JobLockRepository jobLockRepository;
+    
+    @Getter
+    private final String nodeId;
+    
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-lock-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public JobLockService(JobLockRepository jobLockRepository, @Value("${cluster.node-id:}") String nodeId) {
+        this.jobLockRepository = jobLockRepository;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        log.info("Cluster node id: {}", this.nodeId);
+    }
+    
+    /**
+     * Lock bo'sh yoki muddati o'tgan bo'lsa uni egallaydi. Boshqa node ushlab turgan bo'lsa bo'sh qaytadi.
+     */
+    public Optional<Lease> tryAcquire(String name, Duration lease, Duration minHold) {
+        if (heartbeats.isShutdown()) {
+            // Node to'xtayapti - heartbeat'siz lock olinmaydi
+            return Optional.empty();
+        }
+        boolean acquired = jobLockRepository.takeExpired(name, nodeId, lease.toMillis()) > 0
+            || jobLockRepository.insertIfAbsent(name, nodeId, lease.toMillis()) > 0;
+        if (!acquired) {
+            return Optional.empty();
+        }
+        return Optional.of(new Lease(name, lease, minHold));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+    
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    /**
+     * Olingan lock. close() heartbeat'ni to'xtatadi va lock'ni minHold tugagach bo'shaydigan qiladi.
+     */
+    public final class Lease implements AutoCloseable {
+        
+        private final String name;
+        private final Duration minHold;
+        private final ScheduledFuture<?> heartbeat;
+        private volatile boolean lost;
+        
+        private Lease(String name, Duration lease, Duration minHold) {
+            this.name = name;
+            this.minHold = minHold;
+            long periodMillis = Math.max(lease.toMillis() / 3, 100);
+            this.heartbeat = heartbeats.scheduleAtFixedRate(() -> extend(lease), periodMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
+        }
+        
+        private void extend(Duration lease) {
+            try {
+                if (jobLockRepository.extend(name, nodeId, lease.toMillis()) == 0) {
+                    lost = true;
+                    log.warn("Lost job lock {} - another node took it over", name);
+                }
+            } catch (Exception e) {
+                log.warn("Job lock {} heartbeat failed: {}", name, e.getMessage());
+            }
+        }
+        
+        /**
+         * Heartbeat lock'ni uzaytira olmagan bo'lsa true - lock endi boshqa node'da bo'lishi mumkin
+         */
+        public boolean isLost() {
+            return lost;
+        }
+        
+        /**
+         * Heartbeat'ni to'xtatib lock qatorini o'chiradi (minHold'siz, bir martalik lock'lar uchun)
+         */
+        public void release() {
+            heartbeat.cancel(false);
+            jobLockRepository.deleteOwned(name, nodeId);
+        }
+        
+        @Override
+        public void close() {
+            heartbeat.cancel(false);
+            jobLockRepository.releaseAfterMinHold(name, nodeId, minHold.toMillis());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rejali job'lar reyestri: bir job ikki marta parallel ishlamasligini ta'minlaydi (oldingi
+ * ishga tushirish tugamagan bo'lsa yangisi SKIPPED bo'ladi) va har bir ishga tushirishning
+ * boshlanish/tugash vaqti, davomiyligi va qayta ishlangan qatorlar sonini saqlaydi.
+ */
+@Component
+@Slf4j
+public class JobRunRegistry {
+    
+    public enum RunStatus {
+        SUCCESS,
+        FAILED,
+        SKIPPED   // Oldingi ishga tushirish hali tugamagan
+    }
+    
+    public record JobRun(String job, LocalDateTime startedAt, LocalDateTime finishedAt, long durationMillis,
+                         long processed, RunStatus status, String error) {}
+    
+    public record JobStatus(String job, boolean running, JobRun lastRun, List<JobRun> recentRuns) {}
+    
+    private final int historySize;
+    private final Map<String, AtomicBoolean> running = new ConcurrentHashMap<>();
+    private final Map<String, Deque<JobRun>> history = new ConcurrentHashMap<>();
+    
+    public JobRunRegistry(@Value("${scheduler.history-size:20}") int historySize) {
+        this.historySize = historySize;
+    }
+    
+    /**
+     * Job'ni ishga tushiradi. body qayta ishlangan qatorlar sonini qaytaradi.
+     * Job allaqachon ishlayotgan bo'lsa body chaqirilmaydi va false qaytadi.
+     */
+    public boolean run(String job, LongSupplier body) {
+        AtomicBoolean flag = running.computeIfAbsent(job, key -> new AtomicBoolean());
+        LocalDateTime startedAt = LocalDateTime.now();
+        if (!flag.compareAndSet(false, true)) {
+            log.warn("Job {} is still running, skipping this run", job);
+            record(new JobRun(job, startedAt, startedAt, 0, 0, RunStatus.SKIPPED, null));
+            return false;
+        }
+        long started = System.nanoTime();
+        try {
+            long processed = body.getAsLong();
+            record(new JobRun(job, startedAt, LocalDateTime.now(), (System.nanoTime() - started) / 1_000_000,
+                processed, RunStatus.SUCCESS, null));
+            return true;
+        } catch (RuntimeException e) {
+            record(new JobRun(job, startedAt, LocalDateTime.now(), (System.nanoTime() - started) / 1_000_000,
+                0, RunStatus.FAILED, e.getMessage()));
+            throw e;
+        } finally {
+            flag.set(false);
+        }
+    }
+    
+    public List<JobStatus> getJobs() {
+        List<JobStatus> result = new ArrayList<>();
+        history.keySet().stream().sorted().forEach(job -> {
+            Deque<JobRun> runs = history.get(job);
+            List<JobRun> recent;
+            synchronized (runs) {
+                recent = new ArrayList<>(runs);
+            }
+            result.add(new JobStatus(job, running.get(job).get(), recent.isEmpty() ? null : recent.get(0), recent));
+        });
+        return result;
+    }
+    
+    private void record(JobRun run) {
+        Deque<JobRun> runs = history.computeIfAbsent(run.job(), key -> new ArrayDeque<>());
+        synchronized (runs) {
+            runs.addFirst(run);
+            while (runs.size() > historySize) {
+                runs.removeLast();
+            }
+        }
+        if (run.status() == RunStatus.SUCCESS && run.processed() == 0) {
+            // Tez-tez ishlaydigan poller'lar (outbox, navbat) bo'sh ishga tushishlarda logni to'ldirmasin
+            log.debug("Job {} had nothing to process", run.job());
+        } else if (run.status() != RunStatus.SKIPPED) {
+            log.info("Job {} {} in {} ms, processed {}", run.job(), run.status(), run.durationMillis(), run.processed());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package uz.kuponbot.kupon.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uch tilli (uz, uz_cyrl, ru) xabar shablonlari registri.
+ *
+ * Shablonlar ishga tushishda i18n/messages_{til}.properties fayllaridan bir marta
+ * o'qiladi va segmentlarga kompilyatsiya qilinadi, shuning uchun render() har safar
+ * String.format kabi pattern parse qilmaydi. Placeholderlar:
+ * {0} - oddiy qiymat, {0,number} - 1,234,567 ko'rinishidagi butun son,
+ * {0,decimal} - bir xonali kasr (12.5).
+ */
+@Component
+@Slf4j
+public class MessageTemplates {
+
+    public static final String DEFAULT_LANGUAGE = "uz";
+    private static final String[] LANGUAGES = {"uz", "uz_cyrl", "ru"};
+    private static final String BUNDLE_PATH = "i18n/messages_%s.properties";
+
+    private final Map<String, Map<String, Template>> templates = new HashMap<>();
+
+    @PostConstruct
+    public void load() {
+        for (String language : LANGUAGES) {
+            Properties properties = readBundle(String.format(BUNDLE_PATH, language));
+            Map<String, Template> compiled = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                compiled.put(key, Template.compile(properties.getProperty(key)));
+            }
+            templates.put(language, compiled);
+        }
+        log.info("Loaded {} message templates", templates.get(DEFAULT_LANGUAGE).size());
+    }
+
+    /**
+     * Shablonni foydalanuvchi tilida render qilish. Til yoki kalit topilmasa uz ishlatiladi.
+     */
+    public String render(String key, String language, Object... args) {
+        return resolve(key, language).render(args);
+    }
+
+    public boolean contains(String key) {
+        return templates.get(DEFAULT_LANGUAGE).containsKey(key);
+    }
+
+    private Template resolve(String key, String language) {
+        Map<String, Template> byKey = language != null ? templates.get(language) : null;
+        Template template = byKey != null ? byKey.get(key) : null;
+        if (template == null) {
+            template = templates.get(DEFAULT_LANGUAGE).get(key);
+        }
+        if (template == null) {
+            throw new RuntimeException("Message template not found: " + key);
+        }
+        return template;
+    }
+
+    private static Properties readBundle(String path) {
+        InputStream in = MessageTemplates.class.getClassLoader().getResourceAsStream(path);
+        if (in == null) {
+            throw new RuntimeException("Message bundle not found: " + path);
+        }
+        Properties properties = new Properties();
+        try (InputStreamReader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read message bundle: " + path, e);
+        }
+        return properties;
+    }
+
+    /**
+     * Kompilyatsiya qilingan shablon: literal[i] dan keyin argIndex[i] qiymati yoziladi,
+     * oxirida literal[n] qo'shiladi.
+     */
+    static final class Template {
+
+        private static final int PLAIN = 0;
+        private static final int NUMBER = 1;
+        private static final int DECIMAL = 2;
+
+        private final String[] literals;
+        private final int[] argIndexes;
+        private final int[] kinds;
+        private final int baseLength;
+
+        private Template(String[] literals, int[] argIndexes, int[] kinds) {
+            this.literals = literals;
+            this.argIndexes = argIndexes;
+            this.kinds = kinds;
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.baseLength = length;
+        }
+
+        static Template compile(String source) {
+            List<String> literals = new ArrayList<>();
+            List<int[]> placeholders = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                int close = c == '{' ? source.indexOf('}', i) : -1;
+                int[] placeholder = close > 0 ? parsePlaceholder(source.substring(i + 1, close)) : null;
+                if (placeholder != null) {
+                    literals.add(current.toString());
+                    current.setLength(0);
+                    placeholders.add(placeholder);
+                    i = close + 1;
+                } else {
+                    current.append(c);
+                    i++;
+                }
+            }
+            literals.add(current.toString());
+
+            int[] argIndexes = new int[placeholders.size()];
+            int[] kinds = new int[placeholders.size()];
+            for (int p = 0; p < placeholders.size(); p++) {
+                argIndexes[p] = placeholders.get(p)[0];
+                kinds[p] = placeholders.get(p)[1];
+            }
+            return new Template(literals.toArray(new String[0]), argIndexes, kinds);
+        }
+
+        // "{0}", "{0,number}", "{0,decimal}" - boshqa har qanday matn literal sifatida qoladi
+        private static int[] parsePlaceholder(String body) {
+            int comma = body.indexOf(',');
+            String index = comma >= 0 ? body.substring(0, comma) : body;
+            if (index.isEmpty() || index.length() > 2 || !index.chars().allMatch(Character::isDigit)) {
+                return null;
+            }
+            int kind;
+            if (comma < 0) {
+                kind = PLAIN;
+            } else {
+                switch (body.substring(comma + 1)) {
+                    case "number" -> kind = NUMBER;
+                    case "decimal" -> kind = DECIMAL;
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+            return new int[] {Integer.parseInt(index), kind};
+        }
+
+        String render(Object... args) {
+            StringBuilder sb = new StringBuilder(baseLength + argIndexes.length * 12);
+            for (int p = 0; p < argIndexes.length; p++) {
+                sb.append(literals[p]);
+                Object arg = argIndexes[p] < args.length ? args[argIndexes[p]] : null;
+                switch (kinds[p]) {
+                    case NUMBER -> appendGrouped(sb, arg);
+                    case DECIMAL -> appendDecimal(sb, arg);
+                    default -> sb.append(arg);
+                }
+            }
+            return sb.append(literals[literals.length - 1]).toString();
+        }
+
+        private static void appendGrouped(StringBuilder sb, Object arg) {
+            if (!(arg instanceof Number number)) {
+                sb.append(arg);
+                return;
+            }
+            long value = number.longValue();
+            if (value < 0) {
+                sb.append('-');
+                value = -value;
+            }
+            String digits = Long.toString(value);
+            int firstGroup = digits.length() % 3 == 0 ? 3 : digits.length() % 3;
+            sb.append(digits, 0, firstGroup);
+            for (int i = firstGroup; i < digits.length(); i += 3) {
+                sb.append(',').append(digits, i, i + 3);
+            }
+        }
+
+        private static void appendDecimal(StringBuilder sb, Object arg) {
+            if (!(arg instanceof Number number)) {
+                sb.append(arg);
+                return;
+            }
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                sb.append(value);
+                return;
+            }
+            // %.1f bilan bir xil yaxlitlash (28.45 -> 28.5)
+            sb.append(BigDecimal.valueOf(value).setScale(1, RoundingMode.HALF_UP).toPlainString());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.repository.NotificationLogRepository;
+
+/**
+ * Rejali xabarlarni bir marta yuborish kafolati.
+ *
+ * claim() yuborishdan oldin notification_log ga ON CONFLICT DO NOTHING bilan yozadi -
+ * faqat yozuvni birinchi bo'lib qo'shgan chaqiruv true oladi. Yaqinda ko'rilgan kalitlar
+ * cheklangan LRU keshda saqlanadi, shuning uchun takroriy tekshiruvlar bazaga bormaydi.
+ */
+@Service
+@Slf4j
+public class NotificationLedger {
+    
+    /** Obyekt uchun bir martalik xabarlar (masalan, bitta harid bo'yicha eslatma) */
+    public static final String ONCE = "once";
+    
+    private final NotificationLogRepository notificationLogRepository;
+    private final JobRunRegistry jobRunRegistry;
+    private final int retentionDays;
+    private final Map<String, Boolean> recentKeys;
+    
+    public NotificationLedger(NotificationLogRepository notificationLogRepository,
+                              JobRunRegistry jobRunRegistry,
+                              @Value("${notification.ledger.cache-size:10000}") int cacheSize,
+                              @Value("${notification.ledger.retention-days:400}") int retentionDays) {
+        this.notificationLogRepository = notificationLogRepository;
+        this.jobRunRegistry = jobRunRegistry;
+        this.retentionDays = retentionDays;
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+    
+    /**
+     * (rule, subjectId, period) uchun xabar hali yuborilmagan bo'lsa uni band qiladi va true qaytaradi.
+     */
+    public boolean claim(String rule, Long subjectId, String period) {
+        String key = rule + ':' + subjectId + ':' + period;
+        if (recentKeys.containsKey(key)) {
+            return false;
+        }
+        int inserted = notificationLogRepository.insertIfAbsent(rule, subjectId, period, LocalDateTime.now());
+        recentKeys.put(key, Boolean.TRUE);
+        return inserted > 0;
+    }
+    
+    /**
+     * Kalit ilgari band qilinganmi - faqat o'qiydi, yangi yozuv qo'shmaydi
+     */
+    public boolean wasClaimed(String rule, Long subjectId, String period) {
+        return recentKeys.containsKey(rule + ':' + subjectId + ':' + period)
+            || notificationLogRepository.existsByRuleAndSubjectIdAndPeriod(rule, subjectId, period);
+    }
+    
+    /**
+     * Yuborish muvaffaqiyatsiz bo'lganda band qilingan kalitni bo'shatadi - keyingi urinish qayta claim qila oladi
+     */
+    public void release(String rule, Long subjectId, String period) {
+        notificationLogRepository.deleteKey(rule, subjectId, period);
+        recentKeys.remove(rule + ':' + subjectId + ':' + period);
+    }
+    
+    // Har kuni eski yozuvlarni tozalash (yillik xabarlar uchun retention bir yildan uzun)
+    @Scheduled(cron = "0 30 4 * * *")
+    @ClusterLocked("notification-log-purge")
+    public void purgeOldEntries() {
+        jobRunRegistry.run("notification-log-purge",
+            () -> notificationLogRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays)));
+    }
+}
@@ -0,0 +1,96 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+import uz.kuponbot.kupon.config.AdminConfig;
+import uz.kuponbot.kupon.entity.OutboxMessage;
+import uz.kuponbot.kupon.repository.OutboxMessageRepository;
+
+/**
+ * Tranzaksion outbox: xabar biznes o'zgarishi bilan bitta tranzaksiyada outbox_messages ga yoziladi.
+ * Tranzaksiya rollback bo'lsa xabar ham yo'qoladi; Telegram'ga so'rov tranzaksiya ichida yuborilmaydi.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationOutbox {
+    
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final AdminConfig adminConfig;
+    
+    public record OutboxStats(long pending, long failed, LocalDateTime oldestPendingAt, long lagSeconds) {}
+    
+    @Transactional
+    public void enqueue(Long chatId, String text) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage message = new OutboxMessage();
+        message.setChatId(chatId);
+        message.setText(text);
+        message.setNextAttemptAt(now);
+        message.setCreatedAt(now);
+        outboxMessageRepository.save(message);
+    }
+    
+    @Transactional
+    public void enqueueToAdmins(String text) {
+        for (Long adminId : adminConfig.getAdminIds()) {
+            enqueue(adminId, text);
+        }
+    }
+    
+    /**
+     * Tayyor xabarlardan limit tasini band qiladi: urinishlar soni oshadi va next_attempt_at lease
+     * muddatiga suriladi. Relay yuborib ulgurmasa (node o'chsa), lease tugagach xabar qayta olinadi.
+     */
+    @Transactional
+    public List<OutboxMessage> claimReady(int limit, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> ready = outboxMessageRepository.lockReady(now, limit);
+        if (!ready.isEmpty()) {
+            outboxMessageRepository.markClaimed(ready.stream().map(OutboxMessage::getId).toList(), now.plus(lease));
+        }
+        return ready;
+    }
+    
+    public void markSent(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            outboxMessageRepository.markSent(ids, LocalDateTime.now());
+        }
+    }
+    
+    public void scheduleRetry(Long id, LocalDateTime nextAttemptAt, String error) {
+        outboxMessageRepository.scheduleRetry(id, nextAttemptAt, error);
+    }
+    
+    public void markFailed(Long id, String error) {
+        outboxMessageRepository.markFailed(id, error);
+    }
+    
+    public int purgeFinishedBefore(LocalDateTime before) {
+        return outboxMessageRepository.deleteFinishedBefore(before);
+    }
+    
+    /**
+     * Outbox lag: eng eski yuborilmagan xabar qancha vaqtdan beri kutmoqda
+     */
+    @Transactional(readOnly = true)
+    public OutboxStats getStats() {
+        Optional<OutboxMessage> oldest = outboxMessageRepository.findTopByStatusOrderByIdAsc(OutboxMessage.Status.PENDING);
+        LocalDateTime oldestPendingAt = oldest.map(OutboxMessage::getCreatedAt).orElse(null);
+        long lagSeconds = oldestPendingAt != null
+            ? Math.max(0, Duration.between(oldestPendingAt, LocalDateTime.now()).getSeconds())
+            : 0;
+        return new OutboxStats(
+            outboxMessageRepository.countByStatus(OutboxMessage.Status.PENDING),
+            outboxMessageRepository.countByStatus(OutboxMessage.Status.FAILED),
+            oldestPendingAt,
+            lagSeconds);
+    }
+}
@@ -0,0 +1,74 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Kunlik mijoz eslatmasi qoidasi. NotificationRuleEngine har bir slotda qoidalarni ishga tushiradi:
+ * nomzodlarni oladi, har biri uchun notification_log dan (name, subjectId, period) ni band qiladi
+ * va faqat shundan keyin apply() chaqiradi.
+ *
+ * Nomzodlar manbai indeksli tor so'rov bo'lishi kerak (masalan, "ertaga tug'ilgan kuni bo'lganlar"),
+ * shuning uchun yangi qoida qo'shish yangi to'liq jadval skanini qo'shmaydi.
+ */
+public interface NotificationRule<T> {
+    
+    enum Slot {
+        EARLY,    // 03:00 UTC = 08:00 Toshkent
+        MORNING   // 05:00 UTC = 10:00 Toshkent
+    }
+    
+    /** Qoida nomi - notification_log dagi rule va statistika kaliti */
+    String name();
+    
+    Slot slot();
+    
+    void forEachCandidate(LocalDateTime now, Consumer<T> sink);
+    
+    Long subjectId(T candidate);
+    
+    /** Dedupe davri: bir martalik xabarlar uchun NotificationLedger.ONCE, yillik uchun yil va h.k. */
+    String period(LocalDateTime now, T candidate);
+    
+    void apply(T candidate);
+    
+    static <T> NotificationRule<T> of(String name, Slot slot,
+                                      BiConsumer<LocalDateTime, Consumer<T>> candidates,
+                                      Function<T, Long> subjectId,
+                                      Function<LocalDateTime, String> period,
+                                      Consumer<T> action) {
+        return new NotificationRule<>() {
+            @Override
+            public String name() {
+                return name;
+            }
+            
+            @Override
+            public Slot slot() {
+                return slot;
+            }
+            
+            @Override
+            public void forEachCandidate(LocalDateTime now, Consumer<T> sink) {
+                candidates.accept(now, sink);
+            }
+            
+            @Override
+            public Long subjectId(T candidate) {
+                return subjectId.apply(candidate);
+            }
+            
+            @Override
+            public String period(LocalDateTime now, T candidate) {
+                return period.apply(now);
+            }
+            
+            @Override
+            public void apply(T candidate) {
+                action.accept(candidate);
+            }
+        };
+    }
+}
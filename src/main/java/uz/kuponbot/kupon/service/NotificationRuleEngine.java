@@ -0,0 +1,121 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Barcha kunlik eslatma qoidalarini bitta joydan ishga tushiradi.
+ *
+ * Har slot uchun bitta @Scheduled metod bor; har qoida o'z nomzodlarini bir marta o'qiydi,
+ * yuborish TelegramSendGateway navbatiga tushadi. Har qoida bo'yicha oxirgi ishga tushirish
+ * statistikasi (nomzodlar, yuborilganlar, dublikatlar, xatolar, vaqt) saqlanadi.
+ */
+@Service
+@Slf4j
+public class NotificationRuleEngine {
+    
+    private final List<NotificationRule<?>> rules;
+    private final NotificationLedger notificationLedger;
+    private final JobRunRegistry jobRunRegistry;
+    private final Map<String, RuleStats> stats = new ConcurrentHashMap<>();
+    
+    public record RuleStats(String rule, NotificationRule.Slot slot, LocalDateTime lastRunAt, long durationMillis,
+                            int matched, int sent, int duplicates, int failed) {}
+    
+    public NotificationRuleEngine(List<NotificationRule<?>> rules, NotificationLedger notificationLedger,
+                                  JobRunRegistry jobRunRegistry) {
+        this.rules = rules;
+        this.notificationLedger = notificationLedger;
+        this.jobRunRegistry = jobRunRegistry;
+        log.info("Registered {} notification rules: {}", rules.size(),
+            rules.stream().map(NotificationRule::name).toList());
+    }
+    
+    @Scheduled(cron = "0 0 3 * * *") // UTC 03:00 = Toshkent 08:00
+    @ClusterLocked("notifications-early")
+    public void runEarlySlot() {
+        jobRunRegistry.run("notifications-early", () -> runSlot(NotificationRule.Slot.EARLY));
+    }
+    
+    @Scheduled(cron = "0 0 5 * * *") // UTC 05:00 = Toshkent 10:00
+    @ClusterLocked("notifications-morning")
+    public void runMorningSlot() {
+        jobRunRegistry.run("notifications-morning", () -> runSlot(NotificationRule.Slot.MORNING));
+    }
+    
+    /**
+     * Slotdagi barcha qoidalarni ishga tushiradi va jami nomzodlar sonini qaytaradi
+     */
+    public long runSlot(NotificationRule.Slot slot) {
+        LocalDateTime now = LocalDateTime.now();
+        long matched = 0;
+        for (NotificationRule<?> rule : rules) {
+            if (rule.slot() == slot) {
+                matched += run(rule, now).matched();
+            }
+        }
+        return matched;
+    }
+    
+    /**
+     * Bitta qoidani qo'lda ishga tushirish (admin test buyruqlari uchun)
+     */
+    public RuleStats runRule(String name) {
+        NotificationRule<?> rule = rules.stream()
+            .filter(r -> r.name().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new RuntimeException("Notification rule not found: " + name));
+        return run(rule, LocalDateTime.now());
+    }
+    
+    public List<RuleStats> getStats() {
+        List<RuleStats> result = new ArrayList<>();
+        for (NotificationRule<?> rule : rules) {
+            result.add(stats.getOrDefault(rule.name(),
+                new RuleStats(rule.name(), rule.slot(), null, 0, 0, 0, 0, 0)));
+        }
+        return result;
+    }
+    
+    private <T> RuleStats run(NotificationRule<T> rule, LocalDateTime now) {
+        long started = System.nanoTime();
+        int[] counts = new int[4]; // matched, sent, duplicates, failed
+        try {
+            rule.forEachCandidate(now, candidate -> {
+                counts[0]++;
+                Long subjectId = rule.subjectId(candidate);
+                String period = rule.period(now, candidate);
+                if (!notificationLedger.claim(rule.name(), subjectId, period)) {
+                    counts[2]++;
+                    return;
+                }
+                try {
+                    rule.apply(candidate);
+                    counts[1]++;
+                } catch (Exception e) {
+                    counts[3]++;
+                    // Xabar/voucher yaratilmadi - kalit bo'shatiladi, qoida qayta ishga tushirilganda yana uriniladi
+                    notificationLedger.release(rule.name(), subjectId, period);
+                    log.error("Notification rule {} failed for subject {}: {}", rule.name(), subjectId, e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.error("Notification rule {} aborted: ", rule.name(), e);
+        }
+        long durationMillis = (System.nanoTime() - started) / 1_000_000;
+        RuleStats result = new RuleStats(rule.name(), rule.slot(), now, durationMillis,
+            counts[0], counts[1], counts[2], counts[3]);
+        stats.put(rule.name(), result);
+        log.info("Notification rule {}: matched={}, sent={}, duplicates={}, failed={}, took {} ms",
+            rule.name(), counts[0], counts[1], counts[2], counts[3], durationMillis);
+        return result;
+    }
+}
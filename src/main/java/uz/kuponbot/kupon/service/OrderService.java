@@ -3,6 +3,7 @@ package uz.kuponbot.kupon.service;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,7 +22,8 @@ public class OrderService {
     
     private final OrderRepository orderRepository;
     private final ProductService productService;
-    private final BroadcastService broadcastService;
+    private final NotificationOutbox notificationOutbox;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Order createOrder(User user, Product product, Integer quantity, String customerNote) {
         // Check stock
@@ -42,6 +44,7 @@ public class OrderService {
         order.setStatus(Order.OrderStatus.PENDING);
         
         Order savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new AdminStatsService.OrderStatusChanged(null, Order.OrderStatus.PENDING));
         
         // Send notification to admins
         notifyAdminsAboutNewOrder(savedOrder);
@@ -71,8 +74,8 @@ public class OrderService {
             order.getId()
         );
         
-        // Send to all admins
-        broadcastService.sendAdminNotification(message);
+        // Send to all admins (outbox orqali, buyurtma bilan bitta tranzaksiyada)
+        notificationOutbox.enqueueToAdmins(message);
     }
     
     public List<Order> getAllOrders() {
@@ -95,8 +98,10 @@ public class OrderService {
         Order order = orderRepository.findById(orderId)
             .orElseThrow(() -> new RuntimeException("Buyurtma topilmadi"));
         
+        Order.OrderStatus oldStatus = order.getStatus();
         order.setStatus(newStatus);
         Order updatedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new AdminStatsService.OrderStatusChanged(oldStatus, newStatus));
         
         // Notify user about status change
         notifyUserAboutStatusChange(updatedOrder);
@@ -123,7 +128,7 @@ public class OrderService {
             statusText
         );
         
-        broadcastService.sendSingleMessage(order.getUser().getTelegramId(), message);
+        notificationOutbox.enqueue(order.getUser().getTelegramId(), message);
     }
     
     public long getPendingOrdersCount() {
@@ -0,0 +1,139 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.entity.OutboxMessage;
+
+/**
+ * outbox_messages dagi xabarlarni bot orqali yuboradi (kamida bir marta).
+ *
+ * Xabar yuborilgandan keyin SENT qilinadi; node shu oraliqda o'chsa lease tugagach xabar qayta
+ * yuboriladi. Xato bo'lsa eksponensial kechikish bilan qayta uriniladi, max-attempts dan keyin FAILED.
+ * Har bir node o'zi poll qiladi - qatorlar FOR UPDATE SKIP LOCKED bilan band qilinadi.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+    
+    private static final Duration BASE_RETRY_DELAY = Duration.ofSeconds(30);
+    
+    private final NotificationOutbox outbox;
+    private final TelegramSendGateway sendGateway;
+    private final JobRunRegistry jobRunRegistry;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final int retentionDays;
+    
+    public OutboxRelay(NotificationOutbox outbox,
+                       TelegramSendGateway sendGateway,
+                       JobRunRegistry jobRunRegistry,
+                       @Value("${outbox.batch-size:50}") int batchSize,
+                       @Value("${outbox.max-attempts:5}") int maxAttempts,
+                       @Value("${outbox.lease-seconds:60}") int leaseSeconds,
+                       @Value("${outbox.retention-days:7}") int retentionDays) {
+        this.outbox = outbox;
+        this.sendGateway = sendGateway;
+        this.jobRunRegistry = jobRunRegistry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retentionDays = retentionDays;
+    }
+    
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:1000}",
+               initialDelayString = "${outbox.poll-interval-ms:1000}")
+    public void relay() {
+        jobRunRegistry.run("outbox-relay", this::drain);
+    }
+    
+    /**
+     * Tayyor xabarlarni partiyalab yuboradi va ishlov berilganlar sonini qaytaradi
+     */
+    public long drain() {
+        long processed = 0;
+        List<OutboxMessage> batch;
+        do {
+            batch = outbox.claimReady(batchSize, lease);
+            
+            // Partiyadagi xabarlar shlyuz navbatiga birdaniga tushadi, keyin natijalari kutiladi
+            Map<OutboxMessage, CompletableFuture<?>> results = new LinkedHashMap<>();
+            for (OutboxMessage message : batch) {
+                results.put(message, send(message));
+            }
+            
+            List<Long> sent = new ArrayList<>();
+            for (Map.Entry<OutboxMessage, CompletableFuture<?>> result : results.entrySet()) {
+                try {
+                    result.getValue().get(lease.toMillis(), TimeUnit.MILLISECONDS);
+                    sent.add(result.getKey().getId());
+                } catch (ExecutionException e) {
+                    handleFailure(result.getKey(), e.getCause());
+                } catch (TimeoutException e) {
+                    // Natija noma'lum - lease tugagach qayta yuboriladi
+                    log.warn("Outbox message {} send timed out", result.getKey().getId());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    outbox.markSent(sent);
+                    return processed + sent.size();
+                }
+            }
+            outbox.markSent(sent);
+            processed += batch.size();
+        } while (batch.size() == batchSize);
+        return processed;
+    }
+    
+    // Har kuni yakunlangan yozuvlarni tozalash
+    @Scheduled(cron = "0 50 4 * * *")
+    @ClusterLocked("outbox-purge")
+    public void purgeFinished() {
+        jobRunRegistry.run("outbox-purge",
+            () -> outbox.purgeFinishedBefore(LocalDateTime.now().minusDays(retentionDays)));
+    }
+    
+    private CompletableFuture<?> send(OutboxMessage message) {
+        try {
+            return sendGateway.sendText(message.getChatId(), message.getText(), TelegramSendGateway.Priority.NOTIFICATION);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private void handleFailure(OutboxMessage message, Throwable error) {
+        String reason = truncate(error != null ? error.getMessage() : null);
+        int attempt = message.getAttempts() + 1; // claimReady dan oldingi qiymat
+        if (attempt >= maxAttempts) {
+            outbox.markFailed(message.getId(), reason);
+            log.error("Outbox message {} to chat {} failed after {} attempts: {}",
+                message.getId(), message.getChatId(), attempt, reason);
+            return;
+        }
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(BASE_RETRY_DELAY.multipliedBy(1L << (attempt - 1)));
+        outbox.scheduleRetry(message.getId(), nextAttemptAt, reason);
+        log.warn("Outbox message {} to chat {} failed (attempt {}), retrying at {}: {}",
+            message.getId(), message.getChatId(), attempt, nextAttemptAt, reason);
+    }
+    
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
@@ -3,6 +3,7 @@ package uz.kuponbot.kupon.service;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,6 +17,7 @@ import uz.kuponbot.kupon.repository.ProductRepository;
 public class ProductService {
     
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     public List<Product> getAllActiveProducts() {
         return productRepository.findByStatusOrderByCreatedAtDesc(Product.ProductStatus.ACTIVE);
@@ -30,7 +32,9 @@ public class ProductService {
     }
     
     public Product save(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new AdminStatsService.ProductsChanged());
+        return saved;
     }
     
     public Product createProduct(String name, String description, String price, List<String> imageUrls, Integer stockQuantity) {
@@ -42,7 +46,7 @@ public class ProductService {
         product.setStockQuantity(stockQuantity);
         product.setStatus(Product.ProductStatus.ACTIVE);
         
-        return productRepository.save(product);
+        return save(product);
     }
     
     public void updateStock(Long productId, Integer quantity) {
@@ -56,7 +60,7 @@ public class ProductService {
                 product.setStatus(Product.ProductStatus.OUT_OF_STOCK);
             }
             
-            productRepository.save(product);
+            save(product);
         }
     }
     
@@ -70,5 +74,6 @@ public class ProductService {
     
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new AdminStatsService.ProductsChanged());
     }
 }
\ No newline at end of file
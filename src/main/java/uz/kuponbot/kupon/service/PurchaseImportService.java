@@ -0,0 +1,377 @@
+package uz.kuponbot.kupon.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * Kassadan kun oxirida olingan haridlarni (CSV yoki Excel) ommaviy import qilish.
+ *
+ * Ustunlar: telegram_id, purchase_amount, description (ixtiyoriy); birinchi qator sarlavha bo'lishi mumkin.
+ * Foydalanuvchilar bitta IN so'rov bilan topiladi, keshbek yozuvlari JDBC batch bilan qo'shiladi,
+ * balanslar foydalanuvchi bo'yicha jamlanib atomik UPDATE'lar batch'i bilan oshiriladi. Hammasi bitta
+ * tranzaksiyada; xabarlar outbox'ga har bir foydalanuvchiga bittadan yoziladi.
+ * Noto'g'ri qatorlar o'tkazib yuboriladi va hisobotda sababi bilan qaytariladi.
+ */
+@Service
+@Slf4j
+public class PurchaseImportService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private static final String INSERT_CASHBACK_SQL =
+        "INSERT INTO cashbacks (user_id, purchase_amount, cashback_amount, cashback_percentage, type, status, description, created_at, " +
+        "remaining_amount, expires_at) VALUES (?, ?, ?, ?, 'EARNED', 'ACTIVE', ?, ?, ?, ?)";
+    private static final String CREDIT_BALANCE_SQL =
+        "UPDATE users SET cashback_balance = cashback_balance + ? WHERE id = ?";
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledMessageQueue scheduledMessageQueue;
+    private final NotificationOutbox notificationOutbox;
+    private final MessageTemplates messageTemplates;
+    private final UserCache userCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxRows;
+    private final int lotValidityDays;
+
+    public record RowResult(int row, Long telegramId, Integer purchaseAmount, Integer cashbackAmount, String error) {}
+
+    public record ImportReport(int totalRows, int imported, int failed, long totalPurchase, long totalCashback,
+                               List<RowResult> rows) {}
+
+    private record PurchaseRow(int row, Long telegramId, Integer purchaseAmount, String description) {}
+
+    public PurchaseImportService(UserRepository userRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ScheduledMessageQueue scheduledMessageQueue,
+                                 NotificationOutbox notificationOutbox,
+                                 MessageTemplates messageTemplates,
+                                 UserCache userCache,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${purchase-import.max-rows:10000}") int maxRows,
+                                 @Value("${cashback.lot-validity-days:365}") int lotValidityDays) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduledMessageQueue = scheduledMessageQueue;
+        this.notificationOutbox = notificationOutbox;
+        this.messageTemplates = messageTemplates;
+        this.userCache = userCache;
+        this.eventPublisher = eventPublisher;
+        this.maxRows = maxRows;
+        this.lotValidityDays = lotValidityDays;
+    }
+
+    public ImportReport importPurchases(String filename, InputStream input) throws IOException {
+        String name = filename == null ? "" : filename.toLowerCase();
+        List<String[]> cells = name.endsWith(".xlsx") || name.endsWith(".xls") ? readExcel(input) : readCsv(input);
+
+        // Fayl o'qilishi tranzaksiyadan tashqarida
+        List<RowResult> results = new ArrayList<>();
+        List<PurchaseRow> rows = new ArrayList<>();
+        for (int i = 0; i < cells.size(); i++) {
+            String[] line = cells.get(i);
+            if (isBlank(line) || (i == 0 && isHeader(line))) {
+                continue;
+            }
+            PurchaseRow parsed = parse(i + 1, line, results);
+            if (parsed != null) {
+                rows.add(parsed);
+            }
+        }
+        if (rows.size() + results.size() > maxRows) {
+            throw new RuntimeException("Too many rows: maximum " + maxRows);
+        }
+
+        List<RowResult> imported = transactionTemplate.execute(status -> importRows(rows, results));
+        results.addAll(imported);
+        results.sort((a, b) -> Integer.compare(a.row(), b.row()));
+
+        long totalPurchase = imported.stream().mapToLong(RowResult::purchaseAmount).sum();
+        long totalCashback = imported.stream().mapToLong(RowResult::cashbackAmount).sum();
+        log.info("Purchase import {}: {} rows imported, {} failed, {} so'm cashback",
+            filename, imported.size(), results.size() - imported.size(), totalCashback);
+        return new ImportReport(results.size(), imported.size(), results.size() - imported.size(),
+            totalPurchase, totalCashback, results);
+    }
+
+    private List<RowResult> importRows(List<PurchaseRow> rows, List<RowResult> failures) {
+        Map<Long, User> users = findUsers(rows);
+        List<PurchaseRow> accepted = new ArrayList<>();
+        for (PurchaseRow row : rows) {
+            if (users.containsKey(row.telegramId())) {
+                accepted.add(row);
+            } else {
+                failures.add(new RowResult(row.row(), row.telegramId(), row.purchaseAmount(), null, "User not found"));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Cashback> cashbacks = insertCashbacks(accepted, users, now);
+
+        // Balanslar: foydalanuvchi bo'yicha jami keshbek, har biriga bitta atomik UPDATE
+        Map<Long, long[]> totalsByUser = new LinkedHashMap<>(); // userId -> [purchase, cashback]
+        for (Cashback cashback : cashbacks) {
+            long[] totals = totalsByUser.computeIfAbsent(cashback.getUser().getId(), id -> new long[2]);
+            totals[0] += cashback.getPurchaseAmount();
+            totals[1] += cashback.getCashbackAmount();
+        }
+        List<Object[]> credits = new ArrayList<>();
+        totalsByUser.forEach((userId, totals) -> credits.add(new Object[] {totals[1], userId}));
+        jdbcTemplate.batchUpdate(CREDIT_BALANCE_SQL, credits);
+
+        scheduledMessageQueue.schedulePurchaseFollowUps(cashbacks);
+        notifyUsers(totalsByUser, users);
+
+        long totalCashback = cashbacks.stream().mapToLong(Cashback::getCashbackAmount).sum();
+        eventPublisher.publishEvent(new AdminStatsService.CashbackRecorded(Cashback.CashbackType.EARNED, totalCashback));
+
+        return withRowNumbers(accepted, cashbacks);
+    }
+
+    private Map<Long, User> findUsers(List<PurchaseRow> rows) {
+        List<Long> telegramIds = rows.stream().map(PurchaseRow::telegramId).distinct().toList();
+        Map<Long, User> users = new HashMap<>();
+        for (int from = 0; from < telegramIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = telegramIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, telegramIds.size()));
+            userRepository.findByTelegramIdIn(chunk).forEach(user -> users.put(user.getTelegramId(), user));
+        }
+        return users;
+    }
+
+    /**
+     * Keshbek yozuvlarini BATCH_SIZE lik JDBC batch'lar bilan qo'shadi; yaratilgan id'lar follow-up'lar uchun olinadi
+     */
+    private List<Cashback> insertCashbacks(List<PurchaseRow> rows, Map<Long, User> users, LocalDateTime now) {
+        List<Cashback> cashbacks = new ArrayList<>(rows.size());
+        for (PurchaseRow row : rows) {
+            Cashback cashback = new Cashback();
+            cashback.setUser(users.get(row.telegramId()));
+            cashback.setPurchaseAmount(row.purchaseAmount());
+            cashback.setCashbackAmount(CashbackService.calculateCashback(row.purchaseAmount()));
+            cashback.setCashbackPercentage(CashbackService.DEFAULT_CASHBACK_PERCENTAGE);
+            cashback.setType(Cashback.CashbackType.EARNED);
+            cashback.setStatus(Cashback.CashbackStatus.ACTIVE);
+            cashback.setDescription(row.description());
+            cashback.setCreatedAt(now);
+            cashback.setRemainingAmount(cashback.getCashbackAmount());
+            cashback.setExpiresAt(now.plusDays(lotValidityDays));
+            cashbacks.add(cashback);
+        }
+
+        for (int from = 0; from < cashbacks.size(); from += BATCH_SIZE) {
+            List<Cashback> batch = cashbacks.subList(from, Math.min(from + BATCH_SIZE, cashbacks.size()));
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_CASHBACK_SQL, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Cashback cashback = batch.get(i);
+                        ps.setLong(1, cashback.getUser().getId());
+                        ps.setInt(2, cashback.getPurchaseAmount());
+                        ps.setInt(3, cashback.getCashbackAmount());
+                        ps.setDouble(4, cashback.getCashbackPercentage());
+                        ps.setString(5, cashback.getDescription());
+                        ps.setTimestamp(6, Timestamp.valueOf(cashback.getCreatedAt()));
+                        ps.setInt(7, cashback.getRemainingAmount());
+                        ps.setTimestamp(8, Timestamp.valueOf(cashback.getExpiresAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+        }
+        return cashbacks;
+    }
+
+    // Har bir foydalanuvchiga bitta xabar (jami harid va keshbek, yangi balans) - OutboxRelay commit'dan keyin yuboradi
+    private void notifyUsers(Map<Long, long[]> totalsByUser, Map<Long, User> users) {
+        Map<Long, Integer> balances = new HashMap<>();
+        List<Long> userIds = new ArrayList<>(totalsByUser.keySet());
+        for (int from = 0; from < userIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            userRepository.findCashbackBalancesByIdIn(userIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, userIds.size())))
+                .forEach(row -> balances.put((Long) row[0], (Integer) row[1]));
+        }
+        for (User user : users.values()) {
+            long[] totals = totalsByUser.get(user.getId());
+            if (totals == null) {
+                continue;
+            }
+            notificationOutbox.enqueue(user.getTelegramId(), messageTemplates.render("cashback.earned",
+                user.getLanguage(), (int) totals[0], (int) totals[1], balances.get(user.getId())));
+            userCache.evictAfterCommit(user.getTelegramId());
+        }
+    }
+
+    private static List<RowResult> withRowNumbers(List<PurchaseRow> rows, List<Cashback> cashbacks) {
+        List<RowResult> results = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Cashback cashback = cashbacks.get(i);
+            results.add(new RowResult(rows.get(i).row(), rows.get(i).telegramId(),
+                cashback.getPurchaseAmount(), cashback.getCashbackAmount(), null));
+        }
+        return results;
+    }
+
+    private static PurchaseRow parse(int rowNumber, String[] line, List<RowResult> failures) {
+        Long telegramId;
+        try {
+            telegramId = Long.parseLong(clean(line[0]));
+        } catch (RuntimeException e) {
+            failures.add(new RowResult(rowNumber, null, null, null, "Invalid telegram_id"));
+            return null;
+        }
+        Integer amount;
+        try {
+            amount = new BigDecimal(clean(line.length > 1 ? line[1] : "")).setScale(0, RoundingMode.HALF_UP).intValueExact();
+        } catch (RuntimeException e) {
+            failures.add(new RowResult(rowNumber, telegramId, null, null, "Invalid purchase_amount"));
+            return null;
+        }
+        if (amount <= 0) {
+            failures.add(new RowResult(rowNumber, telegramId, amount, null, "purchase_amount must be positive"));
+            return null;
+        }
+        String description = line.length > 2 && !line[2].isBlank() ? line[2].trim() : "Harid (import)";
+        if (description.length() > 500) {
+            description = description.substring(0, 500);
+        }
+        return new PurchaseRow(rowNumber, telegramId, amount, description);
+    }
+
+    // "150 000" kabi yozilgan raqamlardan bo'sh joylarni olib tashlaydi
+    private static String clean(String value) {
+        return value.replace("\u00A0", "").replace(" ", "").trim();
+    }
+
+    private static boolean isHeader(String[] line) {
+        return !clean(line[0]).matches("-?\\d+");
+    }
+
+    private static boolean isBlank(String[] line) {
+        for (String value : line) {
+            if (value != null && !value.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String[]> readCsv(InputStream input) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            Character delimiter = null;
+            while ((line = reader.readLine()) != null) {
+                if (rows.isEmpty() && line.startsWith("\uFEFF")) {
+                    line = line.substring(1); // Excel'dan saqlangan UTF-8 BOM
+                }
+                if (delimiter == null) {
+                    delimiter = line.indexOf(';') >= 0 ? ';' : ',';
+                }
+                rows.add(splitCsvLine(line, delimiter));
+            }
+        }
+        return rows;
+    }
+
+    private static String[] splitCsvLine(String line, char delimiter) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values.toArray(new String[0]);
+    }
+
+    private static List<String[]> readExcel(InputStream input) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        DataFormatter formatter = new DataFormatter();
+        try (Workbook workbook = WorkbookFactory.create(input)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet) {
+                String[] values = new String[3];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = cellText(row.getCell(i), formatter);
+                }
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    // Raqamli katakchalar formatsiz o'qiladi (telegram_id "1.23E+9" bo'lib qolmasligi uchun)
+    private static String cellText(Cell cell, DataFormatter formatter) {
+        if (cell == null) {
+            return "";
+        }
+        if (cell.getCellType() == CellType.NUMERIC) {
+            return BigDecimal.valueOf(cell.getNumericCellValue()).stripTrailingZeros().toPlainString();
+        }
+        return formatter.formatCellValue(cell);
+    }
+}
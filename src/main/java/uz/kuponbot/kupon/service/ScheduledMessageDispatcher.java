@@ -0,0 +1,214 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.config.AdminConfig;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.ScheduledMessage;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * scheduled_messages navbatidan vaqti kelgan xabarlarni kun davomida kichik partiyalarda yuboradi.
+ *
+ * Har bir node o'zi poll qiladi (ClusterLocked emas) - qatorlar FOR UPDATE SKIP LOCKED bilan
+ * band qilinadi, shuning uchun node'lar bir-birini kutmaydi va bitta xabarni ikki marta olmaydi.
+ * Takroriy yuborishdan navbatning o'zi ((kind, subject_id) unikal kaliti) himoya qiladi - qator
+ * node to'xtab qolgandan keyin qayta olinsa yoki xato bilan tugasa, xabar qayta yuboriladi.
+ * notification_log faqat o'qiladi: navbatdan oldingi eski yuborishlar qayta chiqmasligi uchun.
+ */
+@Service
+@Slf4j
+public class ScheduledMessageDispatcher {
+    
+    private static final int MAX_ERROR_LENGTH = 500;
+    
+    private final ScheduledMessageQueue queue;
+    private final CashbackRepository cashbackRepository;
+    private final UserRepository userRepository;
+    private final CashbackService cashbackService;
+    private final UserService userService;
+    private final NotificationService notificationService;
+    private final NotificationLedger notificationLedger;
+    private final AdminConfig adminConfig;
+    private final JobRunRegistry jobRunRegistry;
+    private final int batchSize;
+    private final int claimTimeoutMinutes;
+    private final int retentionDays;
+    private final int maxAttempts;
+    private final int retryDelayMinutes;
+    
+    public ScheduledMessageDispatcher(ScheduledMessageQueue queue,
+                                      CashbackRepository cashbackRepository,
+                                      UserRepository userRepository,
+                                      CashbackService cashbackService,
+                                      UserService userService,
+                                      NotificationService notificationService,
+                                      NotificationLedger notificationLedger,
+                                      AdminConfig adminConfig,
+                                      JobRunRegistry jobRunRegistry,
+                                      @Value("${scheduled-messages.batch-size:50}") int batchSize,
+                                      @Value("${scheduled-messages.claim-timeout-minutes:10}") int claimTimeoutMinutes,
+                                      @Value("${scheduled-messages.retention-days:30}") int retentionDays,
+                                      @Value("${scheduled-messages.max-attempts:3}") int maxAttempts,
+                                      @Value("${scheduled-messages.retry-delay-minutes:15}") int retryDelayMinutes) {
+        this.queue = queue;
+        this.cashbackRepository = cashbackRepository;
+        this.userRepository = userRepository;
+        this.cashbackService = cashbackService;
+        this.userService = userService;
+        this.notificationService = notificationService;
+        this.notificationLedger = notificationLedger;
+        this.adminConfig = adminConfig;
+        this.jobRunRegistry = jobRunRegistry;
+        this.batchSize = batchSize;
+        this.claimTimeoutMinutes = claimTimeoutMinutes;
+        this.retentionDays = retentionDays;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMinutes = retryDelayMinutes;
+    }
+    
+    @Scheduled(fixedDelayString = "${scheduled-messages.poll-interval-ms:30000}",
+               initialDelayString = "${scheduled-messages.poll-interval-ms:30000}")
+    public void pollDueMessages() {
+        jobRunRegistry.run("scheduled-messages", this::deliverDue);
+    }
+    
+    /**
+     * Vaqti kelgan barcha xabarlarni partiyalab yuboradi va ishlov berilganlar sonini qaytaradi
+     */
+    public long deliverDue() {
+        int released = queue.releaseClaimedBefore(LocalDateTime.now().minusMinutes(claimTimeoutMinutes));
+        if (released > 0) {
+            log.warn("Released {} stale scheduled messages back to the queue", released);
+        }
+        
+        long processed = 0;
+        List<ScheduledMessage> batch;
+        do {
+            batch = queue.claimDue(batchSize);
+            List<Long> sent = new ArrayList<>();
+            List<Long> skipped = new ArrayList<>();
+            for (ScheduledMessage message : batch) {
+                try {
+                    (deliver(message) ? sent : skipped).add(message.getId());
+                } catch (Exception e) {
+                    fail(message, e);
+                }
+            }
+            queue.finish(sent, ScheduledMessage.Status.SENT, null);
+            queue.finish(skipped, ScheduledMessage.Status.SKIPPED, null);
+            processed += batch.size();
+        } while (batch.size() == batchSize);
+        
+        if (processed > 0) {
+            log.info("Processed {} scheduled messages", processed);
+        }
+        return processed;
+    }
+    
+    // Urinishlar tugamagan bo'lsa xabar kechiktirib navbatga qaytadi, aks holda FAILED
+    private void fail(ScheduledMessage message, Exception e) {
+        String error = truncate(e.getMessage());
+        // markClaimed attempts ni bazada oshiradi, yuklangan obyektda esa avvalgi qiymat qoladi
+        int attempt = message.getAttempts() + 1;
+        if (attempt < maxAttempts) {
+            LocalDateTime retryAt = LocalDateTime.now().plusMinutes((long) retryDelayMinutes * attempt);
+            log.warn("Scheduled message {} ({} for subject {}) failed on attempt {}, retrying at {}: {}",
+                message.getId(), message.getKind(), message.getSubjectId(), attempt, retryAt, error);
+            queue.reschedule(message.getId(), retryAt, error);
+        } else {
+            log.error("Scheduled message {} ({} for subject {}) failed after {} attempts: {}",
+                message.getId(), message.getKind(), message.getSubjectId(), attempt, error);
+            queue.finish(List.of(message.getId()), ScheduledMessage.Status.FAILED, error);
+        }
+    }
+    
+    // Har kuni yakunlangan yozuvlarni tozalash
+    @Scheduled(cron = "0 40 4 * * *")
+    @ClusterLocked("scheduled-messages-purge")
+    public void purgeFinished() {
+        jobRunRegistry.run("scheduled-messages-purge",
+            () -> queue.purgeFinishedBefore(LocalDateTime.now().minusDays(retentionDays)));
+    }
+    
+    /**
+     * Navbat bo'sh bo'lsa (birinchi ishga tushirish), hali vaqti kelmagan follow-up'larni
+     * oxirgi haridlar va ro'yxatdan o'tishlardan to'ldiradi. Takroriy qo'shish ON CONFLICT bilan e'tiborsiz qoladi.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillFromHistory() {
+        if (!queue.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int[] counts = new int[2];
+        cashbackService.forEachPurchaseBetween(now.minusDays(16), now, cashback -> {
+            queue.schedulePurchaseFollowUps(cashback);
+            counts[0]++;
+        });
+        userService.forEachRecipientCreatedBetween(now.minusMonths(6).minusDays(1), now, user -> {
+            queue.scheduleRegistrationFollowUps(user);
+            counts[1]++;
+        });
+        if (counts[0] + counts[1] > 0) {
+            log.info("Backfilled scheduled messages for {} purchases and {} users", counts[0], counts[1]);
+        }
+    }
+    
+    // true - yuborildi, false - o'tkazib yuborildi (obyekt yo'q, qabul qiluvchi emas yoki allaqachon yuborilgan)
+    private boolean deliver(ScheduledMessage message) {
+        return switch (message.getKind()) {
+            case PURCHASE_3D -> withPurchase(message, notificationService::sendThreeDayPurchaseNotification);
+            case EYEWEAR_CARE_15D -> withPurchase(message,
+                cashback -> notificationService.sendEyewearCareReminder(cashback.getUser()));
+            case EYE_CHECKUP_3M -> withRecipient(message, notificationService::sendEyeCheckupReminder);
+            case FREE_CONSULTATION_6M -> withRecipient(message, notificationService::sendFreeConsultationReminder);
+            case ANNIVERSARY_6M -> withRecipient(message, notificationService::sendRegistrationAnniversaryNotification);
+        };
+    }
+    
+    private boolean withPurchase(ScheduledMessage message, Consumer<Cashback> action) {
+        Optional<Cashback> cashback = cashbackRepository.findById(message.getSubjectId());
+        if (cashback.isEmpty() || sentBeforeQueue(message)) {
+            return false;
+        }
+        action.accept(cashback.get());
+        return true;
+    }
+    
+    private boolean withRecipient(ScheduledMessage message, Consumer<User> action) {
+        Optional<User> user = userRepository.findById(message.getSubjectId())
+            .filter(u -> u.getState() == User.UserState.REGISTERED)
+            .filter(u -> !adminConfig.getExcludedIds().contains(u.getTelegramId()));
+        if (user.isEmpty() || sentBeforeQueue(message)) {
+            return false;
+        }
+        action.accept(user.get());
+        return true;
+    }
+    
+    // Navbatdan oldin eski job yuborgan xabarlar (notification_log da kaliti bor) qayta yuborilmaydi
+    private boolean sentBeforeQueue(ScheduledMessage message) {
+        return notificationLedger.wasClaimed(message.getKind().getRuleName(), message.getSubjectId(), NotificationLedger.ONCE);
+    }
+    
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
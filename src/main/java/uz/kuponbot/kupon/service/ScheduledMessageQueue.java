@@ -0,0 +1,145 @@
+package uz.kuponbot.kupon.service;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.ScheduledMessage;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.ScheduledMessageRepository;
+
+/**
+ * scheduled_messages navbati. Follow-up xabarlar hodisa paytida (harid, ro'yxatdan o'tish)
+ * due_at bilan yoziladi; due_at mijoz vaqti bo'yicha kunduzgi oraliqqa suriladi.
+ */
+@Service
+public class ScheduledMessageQueue {
+    
+    // ScheduledMessageRepository.insertIfAbsent bilan bir xil, JDBC batch uchun
+    private static final String INSERT_IF_ABSENT_SQL =
+        "INSERT INTO scheduled_messages (kind, subject_id, due_at, status, attempts, created_at) " +
+        "VALUES (?, ?, ?, 'PENDING', 0, ?) ON CONFLICT DO NOTHING";
+    
+    private final ScheduledMessageRepository scheduledMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ZoneId zone;
+    private final LocalTime dayStart;
+    private final LocalTime dayEnd;
+    
+    public ScheduledMessageQueue(ScheduledMessageRepository scheduledMessageRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${scheduled-messages.zone:Asia/Tashkent}") String zone,
+                                 @Value("${scheduled-messages.day-start-hour:9}") int dayStartHour,
+                                 @Value("${scheduled-messages.day-end-hour:21}") int dayEndHour) {
+        this.scheduledMessageRepository = scheduledMessageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.zone = ZoneId.of(zone);
+        this.dayStart = LocalTime.of(dayStartHour, 0);
+        this.dayEnd = LocalTime.of(dayEndHour, 0);
+    }
+    
+    public void schedulePurchaseFollowUps(Cashback cashback) {
+        LocalDateTime purchasedAt = cashback.getCreatedAt();
+        enqueue(ScheduledMessage.Kind.PURCHASE_3D, cashback.getId(), purchasedAt.plusDays(3));
+        enqueue(ScheduledMessage.Kind.EYEWEAR_CARE_15D, cashback.getId(), purchasedAt.plusDays(15));
+    }
+    
+    /**
+     * Ko'p harid uchun follow-up'lar (ommaviy import) - bitta JDBC batch bilan yoziladi
+     */
+    public void schedulePurchaseFollowUps(Collection<Cashback> cashbacks) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (Cashback cashback : cashbacks) {
+            LocalDateTime purchasedAt = cashback.getCreatedAt();
+            addIfRecent(rows, ScheduledMessage.Kind.PURCHASE_3D, cashback.getId(), purchasedAt.plusDays(3), now);
+            addIfRecent(rows, ScheduledMessage.Kind.EYEWEAR_CARE_15D, cashback.getId(), purchasedAt.plusDays(15), now);
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, rows);
+        }
+    }
+    
+    public void scheduleRegistrationFollowUps(User user) {
+        LocalDateTime registeredAt = user.getCreatedAt();
+        enqueue(ScheduledMessage.Kind.EYE_CHECKUP_3M, user.getId(), registeredAt.plusMonths(3));
+        enqueue(ScheduledMessage.Kind.FREE_CONSULTATION_6M, user.getId(), registeredAt.plusMonths(6));
+        enqueue(ScheduledMessage.Kind.ANNIVERSARY_6M, user.getId(), registeredAt.plusMonths(6));
+    }
+    
+    /**
+     * Xabarni navbatga qo'shish. Vaqti bir kundan oldin o'tib ketganlar qo'shilmaydi
+     * (tarixdan to'ldirishda eski xabarlar kechikib ketmasligi uchun).
+     */
+    public boolean enqueue(ScheduledMessage.Kind kind, Long subjectId, LocalDateTime dueAt) {
+        LocalDateTime now = LocalDateTime.now();
+        if (dueAt.isBefore(now.minusDays(1))) {
+            return false;
+        }
+        return scheduledMessageRepository.insertIfAbsent(kind.name(), subjectId, toDaytime(dueAt), now) > 0;
+    }
+    
+    /**
+     * Vaqti kelgan xabarlardan limit tasini band qilish. Boshqa node tranzaksiyasida bloklangan
+     * qatorlar SKIP LOCKED bilan o'tkazib yuboriladi, band qilinganlari PROCESSING bo'ladi.
+     */
+    @Transactional
+    public List<ScheduledMessage> claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ScheduledMessage> due = scheduledMessageRepository.lockDue(now, limit);
+        if (!due.isEmpty()) {
+            scheduledMessageRepository.markClaimed(due.stream().map(ScheduledMessage::getId).toList(), now);
+        }
+        return due;
+    }
+    
+    public void finish(Collection<Long> ids, ScheduledMessage.Status status, String error) {
+        if (!ids.isEmpty()) {
+            scheduledMessageRepository.finish(ids, status, error, LocalDateTime.now());
+        }
+    }
+    
+    public void reschedule(Long id, LocalDateTime dueAt, String error) {
+        scheduledMessageRepository.reschedule(id, dueAt, error);
+    }
+    
+    public int releaseClaimedBefore(LocalDateTime before) {
+        return scheduledMessageRepository.releaseClaimedBefore(before);
+    }
+    
+    public int purgeFinishedBefore(LocalDateTime before) {
+        return scheduledMessageRepository.deleteFinishedBefore(before);
+    }
+    
+    public boolean isEmpty() {
+        return scheduledMessageRepository.findTopByOrderByIdAsc().isEmpty();
+    }
+    
+    // Kechasi tushadigan xabarlar mijoz vaqti bo'yicha ertalabga suriladi
+    private void addIfRecent(List<Object[]> rows, ScheduledMessage.Kind kind, Long subjectId,
+                             LocalDateTime dueAt, LocalDateTime now) {
+        if (!dueAt.isBefore(now.minusDays(1))) {
+            rows.add(new Object[] {kind.name(), subjectId, toDaytime(dueAt), now});
+        }
+    }
+    
+    LocalDateTime toDaytime(LocalDateTime dueAt) {
+        ZonedDateTime local = dueAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(zone);
+        if (local.toLocalTime().isBefore(dayStart)) {
+            local = local.with(dayStart);
+        } else if (!local.toLocalTime().isBefore(dayEnd)) {
+            local = local.plusDays(1).with(dayStart);
+        }
+        return local.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,183 @@
+package uz.kuponbot.kupon.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import uz.kuponbot.kupon.entity.User;
+
+/**
+ * Bot uchun foydalanuvchi sessiya keshi (telegramId bo'yicha).
+ * Hajmi cheklangan (LRU) va har bir yozuv TTL o'tgach eskiradi.
+ * UserService.save yozuvni commit'dan keyin yangilaydi (putAfterCommit); UserService'ni chetlab o'tuvchi
+ * yozuvlar (native balans UPDATE'lari, saveAll, JDBC batch) evictAfterCommit chaqirishi shart.
+ *
+ * Keshda nusxa saqlanadi va get() ham nusxa qaytaradi - chaqiruvchi obyektni o'zgartirsa, u faqat
+ * UserService.save orqali (commit'dan keyin) keshga tushadi.
+ */
+@Component
+public class UserCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserCache(
+            @Value("${telegram.bot.user-cache.max-size:10000}") int maxSize,
+            @Value("${telegram.bot.user-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public User get(Long telegramId) {
+        if (telegramId == null) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(telegramId);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.cachedAt() > ttlNanos) {
+                entries.remove(telegramId);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return copyOf(entry.user());
+        }
+    }
+
+    public void put(User user) {
+        if (user == null || user.getTelegramId() == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(user.getTelegramId(), new Entry(copyOf(user), System.nanoTime()));
+        }
+    }
+    
+    /**
+     * Saqlangan qiymatni faqat commit'dan keyin keshga qo'yadi; rollback bo'lsa yozuv tozalanadi.
+     * Commit'gacha eski qiymat ham olib tashlanadi, shuning uchun o'qishlar bazaga boradi.
+     */
+    public void putAfterCommit(User user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(user);
+            return;
+        }
+        evict(user.getTelegramId());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(user);
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    evict(user.getTelegramId());
+                }
+            }
+        });
+    }
+
+    public void evict(Long telegramId) {
+        if (telegramId == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(telegramId);
+        }
+    }
+
+    /**
+     * Tranzaksiya commit bo'lgandan keyin tozalash, aks holda parallel o'qish
+     * eski qiymatni qaytadan keshga qo'yib qo'yishi mumkin.
+     */
+    public void evictAfterCommit(Long telegramId) {
+        evict(telegramId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(telegramId);
+                }
+            });
+        }
+    }
+    
+    public void evictAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new Stats(size, maxSize, hitCount, missCount, evictions.sum(),
+            total > 0 ? (double) hitCount / total * 100 : 0);
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setTelegramId(user.getTelegramId());
+        copy.setTelegramUsername(user.getTelegramUsername());
+        copy.setPhoneNumber(user.getPhoneNumber());
+        copy.setFullName(user.getFullName());
+        copy.setBirthDate(user.getBirthDate());
+        copy.setBirthMonth(user.getBirthMonth());
+        copy.setBirthDay(user.getBirthDay());
+        copy.setLanguage(user.getLanguage());
+        copy.setCashbackBalance(user.getCashbackBalance());
+        copy.setState(user.getState());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setUpdatedAt(user.getUpdatedAt());
+        return copy;
+    }
+
+    private record Entry(User user, long cachedAt) {
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private int maxSize;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private double hitRate;
+    }
+}
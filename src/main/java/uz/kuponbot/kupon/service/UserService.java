@@ -4,13 +4,20 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import uz.kuponbot.kupon.config.AdminConfig;
 import uz.kuponbot.kupon.entity.User;
 import uz.kuponbot.kupon.repository.UserRepository;
 
@@ -21,24 +28,70 @@ import uz.kuponbot.kupon.repository.UserRepository;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final AdminConfig adminConfig;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledMessageQueue scheduledMessageQueue;
     
+    private static final int RECIPIENT_PAGE_SIZE = 500;
+    
+    /**
+     * Avval keshdan qidiradi, topilmasa bazadan yuklab keshga qo'yadi.
+     * Keshdan topilganda tranzaksiya ochilmaydi (DB ga murojaat yo'q).
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<User> findByTelegramId(Long telegramId) {
-        return userRepository.findByTelegramId(telegramId);
+        User cached = userCache.get(telegramId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        Optional<User> user = userRepository.findByTelegramId(telegramId);
+        user.ifPresent(userCache::put);
+        return user;
     }
     
     public User save(User user) {
         user.setUpdatedAt(LocalDateTime.now());
-        User saved = userRepository.save(user);
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (RuntimeException e) {
+            // Keshda saqlanmagan o'zgarishlar qolmasligi uchun
+            userCache.evict(user.getTelegramId());
+            throw e;
+        }
+        userCache.putAfterCommit(saved);
         log.info("User saved to DB: id={}, language={}, state={}", 
             saved.getTelegramId(), saved.getLanguage(), saved.getState());
         return saved;
     }
     
+    /**
+     * Ro'yxatdan o'tishni yakunlash: holat REGISTERED bo'ladi va 3/6 oylik follow-up xabarlar
+     * shu tranzaksiyada navbatga yoziladi (adminlar uchun emas)
+     */
+    public User completeRegistration(User user) {
+        user.setState(User.UserState.REGISTERED);
+        User saved = save(user);
+        if (!adminConfig.getExcludedIds().contains(saved.getTelegramId())) {
+            scheduledMessageQueue.scheduleRegistrationFollowUps(saved);
+        }
+        return saved;
+    }
+    
     public User createUser(Long telegramId) {
+        return createUser(telegramId, null);
+    }
+    
+    public User createUser(Long telegramId, String telegramUsername) {
         User user = new User();
         user.setTelegramId(telegramId);
+        user.setTelegramUsername(telegramUsername);
         user.setState(User.UserState.WAITING_LANGUAGE);
-        return save(user);
+        User saved = save(user);
+        eventPublisher.publishEvent(new AdminStatsService.UserCreated(telegramId));
+        return saved;
     }
     
     public boolean existsByTelegramId(Long telegramId) {
@@ -46,23 +99,12 @@ public class UserService {
     }
     
     public List<User> getAllUsers() {
-        // Admin ID'larini belgilash
-        List<Long> adminIds = List.of(1807166165L, 7543576887L, 6051364132L, 1892055669L);
-        
-        // Barcha userlarni olish va adminlarni chiqarib tashlash
-        return userRepository.findAll().stream()
-            .filter(user -> !adminIds.contains(user.getTelegramId()))
-            .collect(Collectors.toList());
+        // Adminlar SQL darajasida chiqarib tashlanadi
+        return userRepository.findAllExcludingAdmins(adminConfig.getExcludedIds());
     }
     
     public long getTotalUsersCount() {
-        // Admin ID'larini belgilash
-        List<Long> adminIds = List.of(1807166165L, 7543576887L, 6051364132L, 1892055669L);
-        
-        // Barcha userlarni sanash va adminlarni chiqarib tashlash
-        return userRepository.findAll().stream()
-            .filter(user -> !adminIds.contains(user.getTelegramId()))
-            .count();
+        return userRepository.countExcludingAdmins(adminConfig.getExcludedIds());
     }
     
     public List<User> getUsersByDateFilter(String filter) {
@@ -83,12 +125,100 @@ public class UserService {
                 return getAllUsers(); // Bu allaqachon adminlarsiz
         }
         
-        // Admin ID'larini belgilash
-        List<Long> adminIds = List.of(1807166165L, 7543576887L, 6051364132L, 1892055669L);
-        
-        // Filterlangan userlarni olish va adminlarni chiqarib tashlash
-        return userRepository.findByCreatedAtBetween(startDate, endDate).stream()
-            .filter(user -> !adminIds.contains(user.getTelegramId()))
-            .collect(Collectors.toList());
+        return userRepository.findCreatedBetweenExcludingAdmins(adminConfig.getExcludedIds(), startDate, endDate);
+    }
+    
+    /**
+     * Ro'yxatdan o'tgan (admin bo'lmagan) foydalanuvchilar soni - broadcast qabul qiluvchilari
+     */
+    @Transactional(readOnly = true)
+    public long countRecipients() {
+        return userRepository.countRecipients(User.UserState.REGISTERED, adminConfig.getExcludedIds());
+    }
+    
+    /**
+     * Qabul qiluvchilarning navbatdagi sahifasi (keyset: id > afterId)
+     */
+    @Transactional(readOnly = true)
+    public List<User> getRecipientPage(Long afterId, int pageSize) {
+        return userRepository.findRecipientPage(User.UserState.REGISTERED, adminConfig.getExcludedIds(),
+            afterId, PageRequest.of(0, pageSize));
+    }
+    
+    /**
+     * Barcha qabul qiluvchilarni sahifalab aylanib chiqadi. Tranzaksiyasiz ishlaydi, shuning uchun
+     * yuklangan sahifalar xotirada to'planib qolmaydi.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachRecipient(Consumer<User> action) {
+        forEachPage(afterId -> getRecipientPage(afterId, RECIPIENT_PAGE_SIZE), action);
+    }
+    
+    /**
+     * [from, to) oralig'ida ro'yxatdan o'tgan qabul qiluvchilarni sahifalab aylanib chiqadi
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachRecipientCreatedBetween(LocalDateTime from, LocalDateTime to, Consumer<User> action) {
+        forEachPage(afterId -> userRepository.findRecipientPageCreatedBetween(User.UserState.REGISTERED,
+            adminConfig.getExcludedIds(), from, to, afterId, PageRequest.of(0, RECIPIENT_PAGE_SIZE)), action);
+    }
+    
+    /**
+     * Tug'ilgan kuni berilgan sanaga to'g'ri keladigan qabul qiluvchilar. Kabisa bo'lmagan yilda
+     * 28-fevralda 29-fevralda tug'ilganlar ham qo'shiladi.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachRecipientWithBirthday(LocalDate date, Consumer<User> action) {
+        List<Integer> days = date.getMonthValue() == 2 && date.getDayOfMonth() == 28 && !date.isLeapYear()
+            ? List.of(28, 29)
+            : List.of(date.getDayOfMonth());
+        forEachPage(afterId -> userRepository.findRecipientPageByBirthday(User.UserState.REGISTERED,
+            adminConfig.getExcludedIds(), date.getMonthValue(), days, afterId,
+            PageRequest.of(0, RECIPIENT_PAGE_SIZE)), action);
+    }
+    
+    /**
+     * birth_month/birth_day ustunlari qo'shilishidan oldingi foydalanuvchilarni to'ldirish.
+     * Migratsiya ham shu ishni qiladi, bu esa ddl-auto bilan yaratilgan bazalar uchun.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillBirthDays() {
+        long afterId = 0L;
+        int updated = 0;
+        while (true) {
+            List<User> page = userRepository.findBirthDateBackfillPage(afterId, PageRequest.of(0, RECIPIENT_PAGE_SIZE));
+            for (User user : page) {
+                user.setBirthDate(user.getBirthDate());
+                if (user.getBirthMonth() == null) {
+                    log.warn("Cannot parse birth date '{}' for user {}", user.getBirthDate(), user.getTelegramId());
+                }
+            }
+            List<User> parsed = page.stream().filter(user -> user.getBirthMonth() != null).toList();
+            userRepository.saveAll(parsed);
+            // saveAll keshni chetlab o'tadi - eskirgan nusxalar commit'dan keyin tozalanadi
+            parsed.forEach(user -> userCache.evictAfterCommit(user.getTelegramId()));
+            updated += parsed.size();
+            if (page.size() < RECIPIENT_PAGE_SIZE) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        if (updated > 0) {
+            log.info("Backfilled birth month/day for {} users", updated);
+        }
+    }
+    
+    private void forEachPage(Function<Long, List<User>> pageLoader, Consumer<User> action) {
+        long afterId = 0L;
+        while (true) {
+            List<User> page = pageLoader.apply(afterId);
+            for (User user : page) {
+                action.accept(user);
+            }
+            if (page.size() < RECIPIENT_PAGE_SIZE) {
+                return;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
     }
 }
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,8 +22,10 @@ import uz.kuponbot.kupon.repository.VoucherRepository;
 public class VoucherService {
     
     private final VoucherRepository voucherRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private static final String VOUCHER_CHARS = "0123456789abcdefghijklmnopqrstuvwxyz";
     private static final int VOUCHER_LENGTH = 8;
+    private static final int REMINDER_BATCH_SIZE = 1000;
     private static final SecureRandom random = new SecureRandom();
     
     public Voucher createBirthdayVoucher(User user) {
@@ -38,6 +41,7 @@ public class VoucherService {
         voucher.setExpiresAt(LocalDateTime.now().plusDays(3)); // 3 kun amal qiladi
         
         Voucher saved = voucherRepository.save(voucher);
+        eventPublisher.publishEvent(new AdminStatsService.VoucherStatusChanged(null, Voucher.VoucherStatus.ACTIVE, 1));
         log.info("Birthday voucher created: {} for user: {}", saved.getCode(), user.getTelegramId());
         
         return saved;
@@ -55,7 +59,9 @@ public class VoucherService {
         voucher.setCreatedAt(LocalDateTime.now());
         voucher.setExpiresAt(LocalDateTime.now().plusDays(validDays));
         
-        return voucherRepository.save(voucher);
+        Voucher saved = voucherRepository.save(voucher);
+        eventPublisher.publishEvent(new AdminStatsService.VoucherStatusChanged(null, Voucher.VoucherStatus.ACTIVE, 1));
+        return saved;
     }
     
     private String generateUniqueVoucherCode() {
@@ -101,6 +107,8 @@ public class VoucherService {
         if (voucher.isExpired()) {
             voucher.setStatus(Voucher.VoucherStatus.EXPIRED);
             voucherRepository.save(voucher);
+            eventPublisher.publishEvent(new AdminStatsService.VoucherStatusChanged(
+                Voucher.VoucherStatus.ACTIVE, Voucher.VoucherStatus.EXPIRED, 1));
             throw new RuntimeException("Voucher muddati tugagan: " + code);
         }
         
@@ -108,20 +116,20 @@ public class VoucherService {
         voucher.setUsedAt(LocalDateTime.now());
         
         log.info("Voucher used: {} by user: {}", code, voucher.getUser().getTelegramId());
-        return voucherRepository.save(voucher);
+        Voucher saved = voucherRepository.save(voucher);
+        eventPublisher.publishEvent(new AdminStatsService.VoucherStatusChanged(
+            Voucher.VoucherStatus.ACTIVE, Voucher.VoucherStatus.USED, 1));
+        return saved;
     }
     
     public void expireOldVouchers() {
-        List<Voucher> expiredVouchers = voucherRepository.findExpiredVouchers(LocalDateTime.now());
+        // Bitta set-based UPDATE - entitylar xotiraga yuklanmaydi
+        int expired = voucherRepository.expireActiveBefore(LocalDateTime.now());
         
-        for (Voucher voucher : expiredVouchers) {
-            voucher.setStatus(Voucher.VoucherStatus.EXPIRED);
-            log.info("Voucher expired: {} for user: {}", voucher.getCode(), voucher.getUser().getTelegramId());
-        }
-        
-        if (!expiredVouchers.isEmpty()) {
-            voucherRepository.saveAll(expiredVouchers);
-            log.info("Expired {} vouchers", expiredVouchers.size());
+        if (expired > 0) {
+            eventPublisher.publishEvent(new AdminStatsService.VoucherStatusChanged(
+                Voucher.VoucherStatus.ACTIVE, Voucher.VoucherStatus.EXPIRED, expired));
+            log.info("Expired {} vouchers", expired);
         }
     }
     
@@ -133,9 +141,16 @@ public class VoucherService {
         return voucherRepository.findVouchersNeedingReminder(now, dayAfterTomorrow, yesterday);
     }
     
-    public void markReminderSent(Voucher voucher) {
-        voucher.setLastReminderSent(LocalDateTime.now());
-        voucherRepository.save(voucher);
+    /**
+     * Eslatma yuborilgan vaqtni bir nechta voucherga bitta so'rov bilan yozish
+     * (IN ro'yxati juda uzun bo'lmasligi uchun 1000 talik bo'laklarda)
+     */
+    public void markRemindersSent(List<Long> voucherIds) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < voucherIds.size(); from += REMINDER_BATCH_SIZE) {
+            List<Long> batch = voucherIds.subList(from, Math.min(from + REMINDER_BATCH_SIZE, voucherIds.size()));
+            voucherRepository.markReminderSent(batch, now);
+        }
     }
     
     public List<Voucher> getAllVouchers() {
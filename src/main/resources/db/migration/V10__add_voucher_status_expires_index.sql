@@ -0,0 +1,2 @@
+-- Muddati o'tgan voucherlarni bitta UPDATE bilan EXPIRED qilish uchun
+CREATE INDEX IF NOT EXISTS idx_vouchers_status_expires_at ON vouchers(status, expires_at);
@@ -0,0 +1,17 @@
+-- Kechiktirilgan follow-up xabarlar navbati (harid + 3/15 kun, ro'yxatdan o'tish + 3/6 oy)
+CREATE TABLE IF NOT EXISTS scheduled_messages (
+    id BIGSERIAL PRIMARY KEY,
+    kind VARCHAR(30) NOT NULL,
+    subject_id BIGINT NOT NULL,
+    due_at TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    claimed_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_scheduled_messages_kind_subject UNIQUE (kind, subject_id)
+);
+
+-- Poller: WHERE status = 'PENDING' AND due_at <= now() ORDER BY due_at
+CREATE INDEX IF NOT EXISTS idx_scheduled_messages_status_due_at ON scheduled_messages(status, due_at);
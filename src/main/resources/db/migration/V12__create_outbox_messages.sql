@@ -0,0 +1,15 @@
+-- Tranzaksion outbox: foydalanuvchi va admin xabarlari biznes tranzaksiyasi bilan birga yoziladi
+CREATE TABLE IF NOT EXISTS outbox_messages (
+    id BIGSERIAL PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    text TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP
+);
+
+-- Relay: WHERE status = 'PENDING' AND next_attempt_at <= now()
+CREATE INDEX IF NOT EXISTS idx_outbox_messages_status_next_attempt ON outbox_messages(status, next_attempt_at);
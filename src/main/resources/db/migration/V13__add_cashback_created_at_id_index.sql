@@ -0,0 +1,2 @@
+-- Admin paneldagi keshbek tarixi (created_at, id) bo'yicha keyset sahifalanadi
+CREATE INDEX IF NOT EXISTS idx_cashbacks_created_at_id ON cashbacks(created_at, id);
@@ -0,0 +1,15 @@
+-- Keshbek daftari nazorat nuqtalari: solishtirish faqat last_cashback_id dan keyingi yozuvlarni yig'adi
+CREATE TABLE IF NOT EXISTS cashback_checkpoints (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL UNIQUE,
+    ledger_balance BIGINT NOT NULL DEFAULT 0,
+    last_cashback_id BIGINT NOT NULL DEFAULT 0,
+    user_balance INTEGER NOT NULL DEFAULT 0,
+    drift BIGINT NOT NULL DEFAULT 0,
+    checked_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_cashback_checkpoints_drift ON cashback_checkpoints(drift);
+
+-- Delta: WHERE user_id = ? AND id > last_cashback_id
+CREATE INDEX IF NOT EXISTS idx_cashbacks_user_id_id ON cashbacks(user_id, id);
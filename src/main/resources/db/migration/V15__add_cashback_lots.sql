@@ -0,0 +1,36 @@
+-- Keshbek lotlari: EARNED/REFUNDED yozuvning ishlatilmagan qoldig'i va amal qilish muddati
+ALTER TABLE cashbacks ADD COLUMN IF NOT EXISTS remaining_amount INTEGER;
+ALTER TABLE cashbacks ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP;
+
+-- Hibernate (ddl-auto) yaratgan enum CHECK'lari yangi EXPIRED qiymatini rad etmasligi uchun
+ALTER TABLE cashbacks DROP CONSTRAINT IF EXISTS cashbacks_type_check;
+ALTER TABLE cashbacks DROP CONSTRAINT IF EXISTS cashbacks_status_check;
+
+-- Mavjud balans eng yangi lotlarga taqsimlanadi (FIFO bo'yicha eskilari allaqachon ishlatilgan deb hisoblanadi)
+WITH lots AS (
+    SELECT c.id,
+           c.cashback_amount,
+           u.cashback_balance,
+           SUM(c.cashback_amount) OVER (PARTITION BY c.user_id ORDER BY c.id DESC) AS newer_total
+    FROM cashbacks c
+    JOIN users u ON u.id = c.user_id
+    WHERE c.type IN ('EARNED', 'REFUNDED') AND c.status = 'ACTIVE'
+)
+UPDATE cashbacks c
+SET remaining_amount = GREATEST(0, LEAST(lots.cashback_amount,
+                                         lots.cashback_balance - (lots.newer_total - lots.cashback_amount)))
+FROM lots
+WHERE c.id = lots.id;
+
+-- Eski lotlarga kamida 30 kun muhlat: migratsiyadan keyingi birinchi tunda ommaviy expiry bo'lmasin
+UPDATE cashbacks
+SET expires_at = GREATEST(created_at + INTERVAL '365 days', CURRENT_TIMESTAMP + INTERVAL '30 days')
+WHERE type IN ('EARNED', 'REFUNDED') AND expires_at IS NULL;
+
+UPDATE cashbacks
+SET status = 'USED', used_at = COALESCE(used_at, CURRENT_TIMESTAMP)
+WHERE type IN ('EARNED', 'REFUNDED') AND status = 'ACTIVE' AND remaining_amount = 0;
+
+-- "Foydalanuvchining ishlatiladigan lotlari" (FIFO) va tungi expiry qidiruvi
+CREATE INDEX IF NOT EXISTS idx_cashbacks_user_status_expires_at ON cashbacks(user_id, status, expires_at);
+CREATE INDEX IF NOT EXISTS idx_cashbacks_status_expires_at ON cashbacks(status, expires_at);
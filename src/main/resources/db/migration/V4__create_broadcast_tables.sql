@@ -0,0 +1,35 @@
+-- Broadcast vazifalari va har bir qabul qiluvchiga yuborish jurnali
+CREATE TABLE IF NOT EXISTS broadcast_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    type VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    text TEXT,
+    from_chat_id BIGINT,
+    source_message_id INTEGER,
+    created_by BIGINT,
+    last_user_id BIGINT NOT NULL DEFAULT 0,
+    total_recipients INTEGER NOT NULL DEFAULT 0,
+    sent_count INTEGER NOT NULL DEFAULT 0,
+    failed_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_broadcast_jobs_status ON broadcast_jobs(status);
+
+CREATE TABLE IF NOT EXISTS broadcast_deliveries (
+    id BIGSERIAL PRIMARY KEY,
+    job_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    telegram_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP,
+    CONSTRAINT fk_broadcast_deliveries_job FOREIGN KEY (job_id) REFERENCES broadcast_jobs(id) ON DELETE CASCADE,
+    CONSTRAINT uk_broadcast_delivery_job_user UNIQUE (job_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_broadcast_deliveries_job_status ON broadcast_deliveries(job_id, status);
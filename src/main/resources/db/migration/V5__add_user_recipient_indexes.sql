@@ -0,0 +1,5 @@
+-- Broadcast va scheduler uchun qabul qiluvchilarni keyset (id > ?) bo'yicha tanlash
+CREATE INDEX IF NOT EXISTS idx_users_state_id ON users(state, id);
+
+-- Ro'yxatdan o'tgan sana bo'yicha filtrlar (admin panel, 3/6 oylik eslatmalar)
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users(created_at);
@@ -0,0 +1,2 @@
+-- Kunlik harid eslatmalari (3 va 15 kun) faqat bir kunlik oraliqni o'qishi uchun
+CREATE INDEX IF NOT EXISTS idx_cashbacks_type_created_at ON cashbacks(type, created_at);
@@ -0,0 +1,9 @@
+-- Rejali xabarlar dedupe jurnali: (rule, subject_id, period) bo'yicha bir marta yuboriladi
+CREATE TABLE IF NOT EXISTS notification_log (
+    id BIGSERIAL PRIMARY KEY,
+    rule VARCHAR(50) NOT NULL,
+    subject_id BIGINT NOT NULL,
+    period VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_notification_log_rule_subject_period UNIQUE (rule, subject_id, period)
+);
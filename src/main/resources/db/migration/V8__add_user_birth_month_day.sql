@@ -0,0 +1,11 @@
+-- Tug'ilgan kun bo'yicha qidiruv: birth_date (dd.MM.yyyy matn) dan oy va kun ajratiladi
+ALTER TABLE users ADD COLUMN IF NOT EXISTS birth_month INTEGER;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS birth_day INTEGER;
+
+UPDATE users
+SET birth_month = CAST(SUBSTRING(birth_date FROM 4 FOR 2) AS INTEGER),
+    birth_day = CAST(SUBSTRING(birth_date FROM 1 FOR 2) AS INTEGER)
+WHERE birth_month IS NULL
+  AND birth_date ~ '^(0[1-9]|[12][0-9]|3[01])\.(0[1-9]|1[0-2])\.[0-9]{4}$';
+
+CREATE INDEX IF NOT EXISTS idx_users_birth_month_day ON users(birth_month, birth_day);
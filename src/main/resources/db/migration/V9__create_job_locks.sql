@@ -0,0 +1,8 @@
+-- Bir nechta instance bo'lganda rejali job'ni faqat bitta node ishga tushirishi uchun lease jadvali
+CREATE TABLE IF NOT EXISTS job_locks (
+    name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(255) NOT NULL,
+    lock_until TIMESTAMP NOT NULL,
+    locked_at TIMESTAMP NOT NULL,
+    heartbeat_at TIMESTAMP
+);
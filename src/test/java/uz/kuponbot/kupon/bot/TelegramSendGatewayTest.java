@@ -0,0 +1,132 @@
+package uz.kuponbot.kupon.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Soxta Telegram sender bilan shlyuzning tartib, tezlik cheklovi va 429 qayta urinishini tekshiradi.
+ */
+class TelegramSendGatewayTest {
+
+    private TelegramSendGateway gateway;
+
+    private final Map<String, List<String>> sentPerChat = new ConcurrentHashMap<>();
+    private final AtomicBoolean throttleOnce = new AtomicBoolean();
+
+    @AfterEach
+    void tearDown() {
+        gateway.shutdown();
+    }
+
+    private void startGateway(double globalRate, double chatRate, int chatBurst) {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBean(eq("kuponBot"), eq(AbsSender.class))).thenReturn(new FakeSender());
+        gateway = new TelegramSendGateway(context, globalRate, chatRate, chatBurst, 4, 3);
+        gateway.start();
+    }
+
+    @Test
+    void keepsPerChatOrderAcrossManyChats() throws Exception {
+        startGateway(1000, 1000, 5);
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int seq = 0; seq < 20; seq++) {
+            for (long chatId = 1; chatId <= 50; chatId++) {
+                futures.add(gateway.sendText(chatId, String.valueOf(seq), TelegramSendGateway.Priority.BROADCAST));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        assertEquals(50, sentPerChat.size());
+        for (List<String> texts : sentPerChat.values()) {
+            for (int i = 0; i < texts.size(); i++) {
+                assertEquals(String.valueOf(i), texts.get(i));
+            }
+        }
+        assertEquals(1000, gateway.getStats().getSent());
+    }
+
+    @Test
+    void respectsPerChatRate() throws Exception {
+        startGateway(1000, 10, 1);
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(gateway.sendText(7L, "m" + i, TelegramSendGateway.Priority.NOTIFICATION));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        // 10/s va burst=1 bo'lganda 6 ta xabar kamida ~500ms oladi
+        assertTrue(elapsedMs >= 450, "elapsed " + elapsedMs + "ms");
+    }
+
+    @Test
+    void retriesAfterTooManyRequests() throws Exception {
+        startGateway(1000, 1000, 5);
+        throttleOnce.set(true);
+
+        gateway.sendText(9L, "first", TelegramSendGateway.Priority.INTERACTIVE).get(10, TimeUnit.SECONDS);
+        gateway.sendText(9L, "second", TelegramSendGateway.Priority.INTERACTIVE).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("first", "second"), sentPerChat.get("9"));
+        assertEquals(1, gateway.getStats().getThrottled());
+    }
+
+    private static final ApiResponse<?> TOO_MANY_REQUESTS = tooManyRequests();
+
+    private static ApiResponse<?> tooManyRequests() {
+        try {
+            return new ObjectMapper().readValue("""
+                {"ok":false,"error_code":429,"description":"Too Many Requests: retry after 1",
+                 "parameters":{"retry_after":1}}
+                """, ApiResponse.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class FakeSender extends DefaultAbsSender {
+
+        FakeSender() {
+            super(new DefaultBotOptions(), "test-token");
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method)
+                throws TelegramApiException {
+            SendMessage sendMessage = (SendMessage) method;
+            if (throttleOnce.compareAndSet(true, false)) {
+                throw new TelegramApiRequestException("Error sending message", TOO_MANY_REQUESTS);
+            }
+            sentPerChat.computeIfAbsent(sendMessage.getChatId(), id -> new ArrayList<>()).add(sendMessage.getText());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package uz.kuponbot.kupon.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import uz.kuponbot.kupon.bot.UpdateDispatcher;
+
+/**
+ * Soxta Telegram: webhook endpoint'iga ko'p chatdan parallel update yuboradi va
+ * dispatcher orqali o'tkazuvchanlik hamda chat ichidagi tartibni tekshiradi.
+ */
+class TelegramWebhookThroughputTest {
+
+    private static final String SECRET = "test-secret";
+    private static final int CHATS = 200;
+    private static final int UPDATES_PER_CHAT = 25;
+    private static final int CLIENT_THREADS = 8;
+
+    private UpdateDispatcher dispatcher;
+    private MockMvc mockMvc;
+
+    private final Map<Long, Integer> lastSeqPerChat = new ConcurrentHashMap<>();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger outOfOrder = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new UpdateDispatcher(8, 1000, 2000);
+        dispatcher.start(this::handle);
+
+        TelegramWebhookController controller = new TelegramWebhookController(dispatcher, SECRET);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .addPlaceholderValue("telegram.bot.webhook.path", "/telegram/webhook")
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    private void handle(Update update) {
+        long chatId = update.getMessage().getChatId();
+        int seq = Integer.parseInt(update.getMessage().getText());
+        Integer previous = lastSeqPerChat.put(chatId, seq);
+        if (previous != null && previous + 1 != seq) {
+            outOfOrder.incrementAndGet();
+        }
+        processed.incrementAndGet();
+    }
+
+    @Test
+    void rejectsRequestsWithoutSecretToken() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(updateJson(1, 1L, 0)))
+            .andExpect(status().isUnauthorized());
+
+        assertEquals(0, processed.get());
+    }
+
+    @Test
+    void rejectsRequestsWithWrongSecretToken() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                .header(TelegramWebhookController.SECRET_TOKEN_HEADER, "forged")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(updateJson(1, 1L, 0)))
+            .andExpect(status().isUnauthorized());
+
+        assertEquals(0, processed.get());
+    }
+
+    @Test
+    void refusesToStartWithoutSecretToken() {
+        assertThrows(IllegalStateException.class, () -> new TelegramWebhookController(dispatcher, ""));
+        assertThrows(IllegalStateException.class, () -> new TelegramWebhookController(dispatcher, "  "));
+    }
+
+    @Test
+    void dispatchesThousandsOfUpdatesInChatOrder() throws Exception {
+        int total = CHATS * UPDATES_PER_CHAT;
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+        AtomicInteger updateId = new AtomicInteger();
+
+        long startedAt = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < CLIENT_THREADS; t++) {
+            int clientIndex = t;
+            futures.add(clients.submit(() -> {
+                // Har bir chat faqat bitta client thread'dan, ketma-ket yuboriladi
+                for (int seq = 0; seq < UPDATES_PER_CHAT; seq++) {
+                    for (long chatId = clientIndex; chatId < CHATS; chatId += CLIENT_THREADS) {
+                        mockMvc.perform(post("/telegram/webhook")
+                                .header(TelegramWebhookController.SECRET_TOKEN_HEADER, SECRET)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(updateJson(updateId.incrementAndGet(), chatId + 1000, seq)))
+                            .andExpect(status().isOk());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long acceptedAt = System.nanoTime();
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (processed.get() < total && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        long finishedAt = System.nanoTime();
+        clients.shutdown();
+
+        double acceptSeconds = (acceptedAt - startedAt) / 1e9;
+        double totalSeconds = (finishedAt - startedAt) / 1e9;
+        System.out.printf("Webhook throughput: %d updates accepted in %.2fs (%.0f/s), processed in %.2fs (%.0f/s)%n",
+            total, acceptSeconds, total / acceptSeconds, totalSeconds, total / totalSeconds);
+        System.out.println("Dispatcher stats: " + dispatcher.getStats());
+
+        assertEquals(total, processed.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(CHATS, lastSeqPerChat.size());
+        assertTrue(lastSeqPerChat.values().stream().allMatch(seq -> seq == UPDATES_PER_CHAT - 1));
+    }
+
+    private static String updateJson(int updateId, long chatId, int seq) {
+        return """
+            {"update_id":%d,"message":{"message_id":%d,"date":1700000000,
+             "chat":{"id":%d,"type":"private"},
+             "from":{"id":%d,"is_bot":false,"first_name":"Test"},
+             "text":"%d"}}
+            """.formatted(updateId, updateId, chatId, chatId, seq);
+    }
+}
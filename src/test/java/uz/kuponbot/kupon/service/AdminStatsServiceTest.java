@@ -0,0 +1,57 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.dto.AdminStatsDto;
+import uz.kuponbot.kupon.entity.User;
+
+/**
+ * Event'lar bilan yangilangan snapshot bazadan qayta hisoblangan qiymat bilan mos kelishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class AdminStatsServiceTest {
+
+    @Autowired
+    private AdminStatsService adminStatsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VoucherService voucherService;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void incrementalUpdatesMatchReconciledCounts() {
+        adminStatsService.reconcile();
+        AdminStatsDto before = adminStatsService.getSnapshot();
+
+        User user = userService.createUser(910_001L, "stats_test");
+        voucherService.createSpecialVoucher(user, 10000, 5);
+        voucherService.createSpecialVoucher(user, 20000, 5);
+        voucherService.useVoucher(voucherService.getActiveUserVouchers(user).get(0).getCode());
+
+        AdminStatsDto incremental = adminStatsService.getSnapshot();
+        assertEquals(before.totalUsers() + 1, incremental.totalUsers());
+        assertEquals(before.totalVouchers() + 2, incremental.totalVouchers());
+        assertEquals(before.activeVouchers() + 1, incremental.activeVouchers());
+        assertEquals(before.usedVouchers() + 1, incremental.usedVouchers());
+
+        adminStatsService.reconcile();
+        assertEquals(incremental, adminStatsService.getSnapshot());
+    }
+}
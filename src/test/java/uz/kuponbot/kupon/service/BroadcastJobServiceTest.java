@@ -0,0 +1,202 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.dto.BroadcastProgressDto;
+import uz.kuponbot.kupon.entity.BroadcastDelivery;
+import uz.kuponbot.kupon.entity.BroadcastJob;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.BroadcastDeliveryRepository;
+import uz.kuponbot.kupon.repository.BroadcastJobRepository;
+import uz.kuponbot.kupon.repository.JobLockRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+@SpringBootTest(properties = "broadcast.page-size=2")
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class BroadcastJobServiceTest {
+
+    @Autowired
+    private BroadcastJobService broadcastJobService;
+
+    @Autowired
+    private BroadcastJobRepository jobRepository;
+
+    @Autowired
+    private BroadcastDeliveryRepository deliveryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    private final List<String> sentChatIds = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        deliveryRepository.deleteAll();
+        jobRepository.deleteAll();
+        sentChatIds.clear();
+        when(sendGateway.send(any(SendMessage.class), any())).thenAnswer(invocation -> {
+            SendMessage sendMessage = invocation.getArgument(0);
+            sentChatIds.add(sendMessage.getChatId());
+            return CompletableFuture.completedFuture(new Message());
+        });
+
+        for (long telegramId = 900_001; telegramId <= 900_005; telegramId++) {
+            if (!userRepository.existsByTelegramId(telegramId)) {
+                User user = new User();
+                user.setTelegramId(telegramId);
+                user.setState(telegramId == 900_005 ? User.UserState.START : User.UserState.REGISTERED);
+                userRepository.save(user);
+            }
+        }
+    }
+
+    @Test
+    void sendsToEveryRegisteredUserOnce() throws Exception {
+        BroadcastJob job = broadcastJobService.createTextJob("Salom", null);
+        BroadcastJob finished = broadcastJobService.completion(job.getId()).get(10, TimeUnit.SECONDS);
+
+        long registered = userService.countRecipients();
+        assertEquals(BroadcastJob.JobStatus.COMPLETED, finished.getStatus());
+        assertEquals(registered, finished.getSentCount().longValue());
+        assertEquals(registered, sentChatIds.size());
+        assertEquals(registered, sentChatIds.stream().distinct().count());
+        assertFalse(sentChatIds.contains("900005"));
+        // DataInitializer yaratgan adminlar broadcast olmaydi
+        assertFalse(sentChatIds.contains("1807166165"));
+        assertEquals(4, registered);
+    }
+
+    @Test
+    void publishesFinalProgressToListeners() throws Exception {
+        // Runner band bo'lishi uchun yuborishni sekinlashtiramiz, listener job tugashidan oldin ulanadi
+        when(sendGateway.send(any(SendMessage.class), any())).thenAnswer(invocation -> {
+            SendMessage sendMessage = invocation.getArgument(0);
+            sentChatIds.add(sendMessage.getChatId());
+            return CompletableFuture.supplyAsync(Message::new,
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        });
+        List<BroadcastProgressDto> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<BroadcastProgressDto> finalEvent = new CompletableFuture<>();
+
+        BroadcastJob job = broadcastJobService.createTextJob("Salom", null);
+        assertTrue(broadcastJobService.addProgressListener(job.getId(), progress -> {
+            events.add(progress);
+            if (progress.finished()) {
+                finalEvent.complete(progress);
+            }
+        }));
+
+        BroadcastProgressDto last = finalEvent.get(10, TimeUnit.SECONDS);
+        assertEquals("COMPLETED", last.status());
+        assertEquals(0, last.remaining());
+        assertEquals(userService.countRecipients(), last.sent());
+        assertTrue(events.size() >= 2, "expected intermediate progress events");
+        assertTrue(broadcastJobService.getProgress(job.getId()).orElseThrow().finished());
+    }
+
+    @Test
+    void refusesListenerForFinishedJob() throws Exception {
+        BroadcastJob job = broadcastJobService.createTextJob("Salom", null);
+        broadcastJobService.completion(job.getId()).get(10, TimeUnit.SECONDS);
+
+        // Tugagan vazifaga listener ulanmaydi (hech kim uni o'chirmaydi) - chaqiruvchi getProgress'dan oladi
+        List<BroadcastProgressDto> events = new CopyOnWriteArrayList<>();
+        assertFalse(broadcastJobService.addProgressListener(job.getId(), events::add));
+        assertTrue(broadcastJobService.getProgress(job.getId()).orElseThrow().finished());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void resumedJobSkipsRecipientsThatAlreadyHaveDeliveryRecord() throws Exception {
+        // Crash simulyatsiyasi: job RUNNING holatda, bitta foydalanuvchiga yuborish boshlangan
+        BroadcastJob job = new BroadcastJob();
+        job.setType(BroadcastJob.JobType.TEXT);
+        job.setText("Salom");
+        job.setStatus(BroadcastJob.JobStatus.RUNNING);
+        job = jobRepository.save(job);
+
+        User inFlight = userRepository.findByTelegramId(900_002L).orElseThrow();
+        BroadcastDelivery delivery = new BroadcastDelivery();
+        delivery.setJob(job);
+        delivery.setUserId(inFlight.getId());
+        delivery.setTelegramId(inFlight.getTelegramId());
+        deliveryRepository.save(delivery);
+
+        broadcastJobService.resumeUnfinishedJobs();
+        BroadcastJob finished = broadcastJobService.completion(job.getId()).get(10, TimeUnit.SECONDS);
+
+        long registered = userService.countRecipients();
+        assertEquals(BroadcastJob.JobStatus.COMPLETED, finished.getStatus());
+        assertFalse(sentChatIds.contains("900002"));
+        assertTrue(sentChatIds.contains("900003"));
+        assertEquals(registered - 1, sentChatIds.size());
+        assertEquals(registered - 1, finished.getSentCount().longValue());
+        assertEquals(1, finished.getFailedCount().intValue());
+    }
+
+    @Test
+    void doesNotResumeJobOwnedByLiveNode() throws Exception {
+        BroadcastJob job = new BroadcastJob();
+        job.setType(BroadcastJob.JobType.TEXT);
+        job.setText("Salom");
+        job.setStatus(BroadcastJob.JobStatus.RUNNING);
+        job = jobRepository.save(job);
+
+        User inFlight = userRepository.findByTelegramId(900_002L).orElseThrow();
+        BroadcastDelivery delivery = new BroadcastDelivery();
+        delivery.setJob(job);
+        delivery.setUserId(inFlight.getId());
+        delivery.setTelegramId(inFlight.getTelegramId());
+        deliveryRepository.save(delivery);
+
+        // Boshqa node vazifani bajarmoqda va heartbeat yuboryapti
+        String lockName = "broadcast-job-" + job.getId();
+        jobLockRepository.insertIfAbsent(lockName, "other-node", 60_000);
+
+        broadcastJobService.resumeUnfinishedJobs();
+        assertTrue(broadcastJobService.completion(job.getId()).isCompletedExceptionally());
+        assertTrue(sentChatIds.isEmpty());
+        assertEquals(BroadcastDelivery.DeliveryStatus.PENDING,
+            deliveryRepository.findAll().get(0).getStatus());
+
+        // Node o'chdi: lease muddati o'tgach vazifa shu node'da davom ettiriladi
+        jobLockRepository.extend(lockName, "other-node", -1_000);
+        broadcastJobService.resumeUnfinishedJobs();
+        BroadcastJob finished = broadcastJobService.completion(job.getId()).get(10, TimeUnit.SECONDS);
+        assertEquals(BroadcastJob.JobStatus.COMPLETED, finished.getStatus());
+        assertFalse(sentChatIds.contains("900002"));
+        assertTrue(jobLockRepository.findById(lockName).isEmpty());
+    }
+}
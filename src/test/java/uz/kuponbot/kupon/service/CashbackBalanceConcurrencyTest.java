@@ -0,0 +1,173 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * Bir mijozga bir nechta kassir parallel ishlaganda balans yo'qolmasligi va minusga tushmasligini
+ * tekshiradi, hamda shartli UPDATE va SELECT ... FOR UPDATE variantlari o'tkazuvchanligini solishtiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class CashbackBalanceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 25;
+    private static final int AMOUNT = 1_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CashbackService cashbackService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CashbackRepository cashbackRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void concurrentSpendingNeverOverdrawsOrLosesUpdates() throws Exception {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        User user = userService.createUser(960_001L, null);
+        cashbackService.addPurchase(960_001L, 2_000_000, "test"); // 100 000 so'm keshbek
+
+        // 200 ta urinish, balans faqat 100 tasiga yetadi
+        AtomicInteger spent = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        run(() -> {
+            try {
+                cashbackService.useCashback(960_001L, AMOUNT, "stress");
+                spent.incrementAndGet();
+            } catch (RuntimeException e) {
+                assertEquals("Insufficient cashback balance", e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+        assertEquals(100, spent.get());
+        assertEquals(THREADS * OPS_PER_THREAD - 100, rejected.get());
+        assertEquals(0, userRepository.findCashbackBalanceById(user.getId()));
+        assertEquals(100, cashbackRepository.findByUserAndStatusOrderByCreatedAtDesc(user, Cashback.CashbackStatus.USED).stream()
+            .filter(c -> c.getType() == Cashback.CashbackType.USED)
+            .count());
+        // Yagona lot oxirigacha yechilgan
+        assertEquals(0, cashbackRepository.findSpendableLots(user).size());
+
+        // Parallel qaytarishlar: hech bir o'zgarish yo'qolmasligi kerak
+        run(() -> cashbackService.refundCashback(960_001L, AMOUNT, "stress"));
+        assertEquals(THREADS * OPS_PER_THREAD * AMOUNT, userRepository.findCashbackBalanceById(user.getId()));
+    }
+
+    @Test
+    void conditionalUpdateThroughputAgainstPessimisticLock() throws Exception {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        User atomicUser = userService.createUser(960_002L, null);
+        User lockedUser = userService.createUser(960_003L, null);
+        int initial = THREADS * OPS_PER_THREAD * AMOUNT;
+        credit(atomicUser, initial);
+        credit(lockedUser, initial);
+
+        // Ikkala variant ham bir xil ish qiladi: yozuv + balans o'zgarishi bitta tranzaksiyada
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        double atomicSeconds = run(() -> transaction.executeWithoutResult(status -> {
+            User user = userRepository.findByTelegramId(960_002L).orElseThrow();
+            if (userRepository.subtractCashbackBalance(user.getId(), AMOUNT) == 0) {
+                throw new RuntimeException("Insufficient cashback balance");
+            }
+            cashbackRepository.save(usedRecord(user));
+        }));
+
+        // Pessimistik variant: qator FOR UPDATE bilan bloklanadi, balans Java'da tekshiriladi
+        double lockedSeconds = run(() -> transaction.executeWithoutResult(status -> {
+            User user = userRepository.findByTelegramIdForUpdate(960_003L).orElseThrow();
+            if (userRepository.findCashbackBalanceById(user.getId()) < AMOUNT) {
+                throw new RuntimeException("Insufficient cashback balance");
+            }
+            userRepository.subtractCashbackBalance(user.getId(), AMOUNT);
+            cashbackRepository.save(usedRecord(user));
+        }));
+
+        assertEquals(0, userRepository.findCashbackBalanceById(atomicUser.getId()));
+        assertEquals(0, userRepository.findCashbackBalanceById(lockedUser.getId()));
+
+        int ops = THREADS * OPS_PER_THREAD;
+        System.out.printf("Cashback spend throughput (%d threads, %d ops): conditional UPDATE %.0f/s, FOR UPDATE %.0f/s%n",
+            THREADS, ops, ops / atomicSeconds, ops / lockedSeconds);
+    }
+
+    private static Cashback usedRecord(User user) {
+        Cashback cashback = new Cashback();
+        cashback.setUser(user);
+        cashback.setPurchaseAmount(0);
+        cashback.setCashbackAmount(AMOUNT);
+        cashback.setCashbackPercentage(0.0);
+        cashback.setType(Cashback.CashbackType.USED);
+        cashback.setStatus(Cashback.CashbackStatus.USED);
+        cashback.setDescription("stress");
+        cashback.setCreatedAt(LocalDateTime.now());
+        cashback.setUsedAt(LocalDateTime.now());
+        return cashback;
+    }
+
+    private void credit(User user, int amount) {
+        new TransactionTemplate(transactionManager)
+            .executeWithoutResult(status -> userRepository.addCashbackBalance(user.getId(), amount));
+    }
+
+    // THREADS ta oqimda OPS_PER_THREAD martadan bajaradi, sarflangan vaqtni (soniya) qaytaradi
+    private double run(Runnable operation) throws Exception {
+        ExecutorService cashiers = Executors.newFixedThreadPool(THREADS);
+        long startedAt = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(cashiers.submit(() -> {
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    operation.run();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        cashiers.shutdown();
+        return (System.nanoTime() - startedAt) / 1e9;
+    }
+}
@@ -0,0 +1,80 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+
+/**
+ * Balans hisoboti bitta GROUP BY so'rov bilan to'g'ri jami summalarni qaytarishini
+ * va balans bo'yicha sahifalab saralashini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class CashbackBalanceReportTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CashbackService cashbackService;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void aggregatesTotalsAndSortsByBalance() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        userService.completeRegistration(userService.createUser(950_001L, null));
+        userService.completeRegistration(userService.createUser(950_002L, null));
+        cashbackService.addPurchase(950_001L, 100_000_000, "test");
+        cashbackService.addPurchase(950_002L, 60_000_000, "test");
+        cashbackService.useCashback(950_002L, 1_000_000, "test");
+
+        CashbackService.UserCashbackBalancePage top = cashbackService.getUsersCashbackBalancePage(0, 2, Sort.Direction.DESC);
+        List<CashbackService.UserCashbackBalance> rows = top.getContent();
+        assertEquals(2, rows.size());
+        assertTrue(top.getTotalElements() >= 2);
+
+        CashbackService.UserCashbackBalance first = rows.get(0);
+        assertEquals(950_001L, first.getTelegramId());
+        assertEquals(5_000_000, first.getCurrentBalance());
+        assertEquals(5_000_000, first.getTotalEarned());
+        assertEquals(0, first.getTotalUsed());
+
+        CashbackService.UserCashbackBalance second = rows.get(1);
+        assertEquals(950_002L, second.getTelegramId());
+        assertEquals(2_000_000, second.getCurrentBalance());
+        assertEquals(3_000_000, second.getTotalEarned());
+        assertEquals(1_000_000, second.getTotalUsed());
+
+        CashbackService.UserCashbackStats stats = cashbackService.getUserCashbackStats(userService.findByTelegramId(950_002L).orElseThrow());
+        assertEquals(3_000_000, stats.getTotalEarned());
+        assertEquals(1_000_000, stats.getTotalUsed());
+
+        CashbackService.UserCashbackBalancePage ascending = cashbackService.getUsersCashbackBalancePage(0, 200, Sort.Direction.ASC);
+        List<CashbackService.UserCashbackBalance> ascRows = ascending.getContent();
+        for (int i = 1; i < ascRows.size(); i++) {
+            assertTrue(ascRows.get(i - 1).getCurrentBalance() <= ascRows.get(i).getCurrentBalance());
+        }
+    }
+}
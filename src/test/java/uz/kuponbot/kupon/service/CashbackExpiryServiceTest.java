@@ -0,0 +1,155 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.dto.CashbackDto;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * Keshbek ishlatilganda lotlar muddati bo'yicha FIFO yechilishini, tungi expiry esa faqat muddati
+ * o'tgan qoldiqlarni balansdan chiqarib, daftarni balans bilan mos holda qoldirishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class CashbackExpiryServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CashbackService cashbackService;
+
+    @Autowired
+    private CashbackExpiryService expiryService;
+
+    @Autowired
+    private CashbackReconciliationService reconciliationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CashbackRepository cashbackRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void drawsLotsFifoAndExpiresRemainders() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        User user = userService.createUser(915_001L, null);
+        CashbackDto older = cashbackService.addPurchase(915_001L, 100_000, "lot A"); // 5 000
+        CashbackDto sooner = cashbackService.addPurchase(915_001L, 60_000, "lot B");  // 3 000
+        // B keyinroq yaratilgan, lekin muddati oldinroq tugaydi - birinchi u yechiladi
+        setExpiresAt(sooner.getId(), LocalDateTime.now().plusDays(10));
+
+        cashbackService.useCashback(915_001L, 4_000, "use");
+        assertEquals(0, lot(sooner.getId()).getRemainingAmount());
+        assertEquals(Cashback.CashbackStatus.USED, lot(sooner.getId()).getStatus());
+        assertEquals(4_000, lot(older.getId()).getRemainingAmount());
+        assertEquals(Cashback.CashbackStatus.ACTIVE, lot(older.getId()).getStatus());
+
+        setExpiresAt(older.getId(), LocalDateTime.now().minusDays(1));
+        cashbackService.refundCashback(915_001L, 1_000, "refund");
+
+        assertTrue(expiryService.expireLots() >= 4_000);
+        assertEquals(1_000, userRepository.findCashbackBalanceById(user.getId()));
+        assertEquals(Cashback.CashbackStatus.EXPIRED, lot(older.getId()).getStatus());
+        List<Cashback> expired = cashbackRepository.findByUserOrderByCreatedAtDesc(user).stream()
+            .filter(c -> c.getType() == Cashback.CashbackType.EXPIRED)
+            .toList();
+        assertEquals(1, expired.size());
+        assertEquals(4_000, expired.get(0).getCashbackAmount());
+
+        // Qayta ishga tushirish hech narsani ikki marta chiqarmaydi
+        expiryService.expireLots();
+        assertEquals(1_000, userRepository.findCashbackBalanceById(user.getId()));
+
+        // Daftar (EARNED + REFUNDED - USED - EXPIRED) balans bilan mos
+        reconciliationService.reconcile(true);
+        assertTrue(reconciliationService.getDrifts().stream().noneMatch(d -> d.telegramId().equals(915_001L)));
+
+        CashbackService.UserCashbackStats stats = cashbackService.getUserCashbackStats(user);
+        assertEquals(8_000, stats.getTotalEarned());
+        assertEquals(4_000, stats.getTotalUsed());
+    }
+
+    @Test
+    void backfillsLotsCreatedBeforeLotColumns() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        User user = userService.createUser(915_002L, null);
+        // ddl-auto bilan yangilangan baza: eski yozuvlarda remaining_amount/expires_at yo'q
+        LocalDateTime createdAt = LocalDateTime.now().minusYears(2);
+        Long oldest = insertLegacyLot(user, 5_000, createdAt);
+        Long middle = insertLegacyLot(user, 3_000, createdAt);
+        Long newest = insertLegacyLot(user, 2_000, createdAt);
+        new TransactionTemplate(transactionManager)
+            .executeWithoutResult(status -> userRepository.addCashbackBalance(user.getId(), 4_000));
+
+        expiryService.backfillLots();
+
+        // Balans eng yangi lotlardan boshlab taqsimlanadi
+        assertEquals(2_000, lot(newest).getRemainingAmount());
+        assertEquals(2_000, lot(middle).getRemainingAmount());
+        assertEquals(0, lot(oldest).getRemainingAmount());
+        assertEquals(Cashback.CashbackStatus.USED, lot(oldest).getStatus());
+        // Muddati allaqachon o'tgan bo'lsa ham kamida 30 kun muhlat
+        assertTrue(lot(middle).getExpiresAt().isAfter(LocalDateTime.now().plusDays(29)));
+
+        // Takroriy ishga tushirish hech narsani o'zgartirmaydi
+        expiryService.backfillLots();
+        assertEquals(2_000, lot(newest).getRemainingAmount());
+
+        cashbackService.useCashback(915_002L, 4_000, "use");
+        assertEquals(0, userRepository.findCashbackBalanceById(user.getId()));
+        assertEquals(0, cashbackRepository.findSpendableLots(user).size());
+    }
+
+    private Long insertLegacyLot(User user, int amount, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO cashbacks (user_id, purchase_amount, cashback_amount, cashback_percentage, "
+            + "type, status, description, created_at) VALUES (?, ?, ?, 5.0, 'EARNED', 'ACTIVE', 'legacy', ?)",
+            user.getId(), amount * 20, amount, Timestamp.valueOf(createdAt));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM cashbacks WHERE user_id = ?", Long.class, user.getId());
+    }
+
+    private Cashback lot(Long id) {
+        return cashbackRepository.findById(id).orElseThrow();
+    }
+
+    private void setExpiresAt(Long id, LocalDateTime expiresAt) {
+        jdbcTemplate.update("UPDATE cashbacks SET expires_at = ? WHERE id = ?", Timestamp.valueOf(expiresAt), id);
+    }
+}
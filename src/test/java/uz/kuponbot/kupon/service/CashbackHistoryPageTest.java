@@ -0,0 +1,98 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.dto.CashbackDto;
+import uz.kuponbot.kupon.entity.Cashback;
+
+/**
+ * Keshbek tarixi keyset sahifalari takrorlanmasdan va tushib qolmasdan kamayish tartibida
+ * kelishini, ixtiyoriy filtrlar ishlashini va buzilgan kursor rad etilishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class CashbackHistoryPageTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CashbackService cashbackService;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void pagesThroughFilteredHistoryWithCursor() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        userService.createUser(970_001L, null);
+        for (int i = 0; i < 3; i++) {
+            cashbackService.addPurchase(970_001L, 100_000, "purchase " + i);
+        }
+        cashbackService.useCashback(970_001L, 1_000, "use 1");
+        cashbackService.useCashback(970_001L, 1_000, "use 2");
+
+        List<CashbackDto> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CashbackService.CashbackHistoryPage page =
+                cashbackService.getCashbackHistoryPage(cursor, 2, null, null, null, null, 970_001L);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, all.size());
+        assertEquals(5, all.stream().map(CashbackDto::getId).distinct().count());
+        for (int i = 1; i < all.size(); i++) {
+            CashbackDto previous = all.get(i - 1);
+            CashbackDto current = all.get(i);
+            assertTrue(previous.getCreatedAt().isAfter(current.getCreatedAt())
+                || (previous.getCreatedAt().isEqual(current.getCreatedAt()) && previous.getId() > current.getId()));
+        }
+        assertEquals("use 2", all.get(0).getDescription());
+        assertEquals(970_001L, all.get(0).getTelegramId());
+        assertEquals("USED", all.get(0).getType());
+        assertNotNull(all.get(0).getUserId());
+
+        CashbackService.CashbackHistoryPage used = cashbackService.getCashbackHistoryPage(null, 10,
+            Cashback.CashbackType.USED, Cashback.CashbackStatus.USED,
+            LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), 970_001L);
+        assertEquals(2, used.getItems().size());
+        assertNull(used.getNextCursor());
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        for (String cursor : List.of("garbage", "2026-10-17T10:00_", "not-a-date_5")) {
+            assertThrows(IllegalArgumentException.class,
+                () -> cashbackService.getCashbackHistoryPage(cursor, 10, null, null, null, null, null));
+        }
+    }
+}
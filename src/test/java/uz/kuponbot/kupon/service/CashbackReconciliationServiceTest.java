@@ -0,0 +1,106 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.CashbackCheckpoint;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.CashbackCheckpointRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * Checkpoint daftar yig'indisini to'g'ri surishini va daftarsiz balans o'zgarishi
+ * farq (drift) sifatida ko'rsatilishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class CashbackReconciliationServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CashbackService cashbackService;
+
+    @Autowired
+    private CashbackReconciliationService reconciliationService;
+
+    @Autowired
+    private CashbackCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void advancesCheckpointsAndReportsDrift() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        User user = userService.createUser(980_001L, null);
+        cashbackService.addPurchase(980_001L, 100_000, "test");
+        cashbackService.useCashback(980_001L, 1_000, "test");
+
+        assertTrue(reconciliationService.reconcile(false).usersChecked() > 0);
+        CashbackCheckpoint checkpoint = checkpoint(user);
+        assertEquals(4_000L, checkpoint.getLedgerBalance());
+        assertEquals(0L, checkpoint.getDrift());
+        assertTrue(drift(980_001L).isEmpty());
+        long lastId = checkpoint.getLastCashbackId();
+
+        // Daftarsiz balans o'zgarishi va keyin oddiy harid
+        new TransactionTemplate(transactionManager)
+            .executeWithoutResult(status -> userRepository.addCashbackBalance(user.getId(), 700));
+        cashbackService.addPurchase(980_001L, 20_000, "test");
+
+        reconciliationService.reconcile(false);
+        checkpoint = checkpoint(user);
+        assertEquals(5_000L, checkpoint.getLedgerBalance());
+        assertEquals(5_700, checkpoint.getUserBalance());
+        assertTrue(checkpoint.getLastCashbackId() > lastId);
+        CashbackReconciliationService.CashbackDrift drift = drift(980_001L).orElseThrow();
+        assertEquals(700L, drift.drift());
+        assertEquals(5_000L, drift.ledgerBalance());
+
+        // To'liq audit ham xuddi shu natijani beradi
+        reconciliationService.reconcile(true);
+        assertEquals(5_000L, checkpoint(user).getLedgerBalance());
+        assertEquals(700L, drift(980_001L).orElseThrow().drift());
+    }
+
+    private CashbackCheckpoint checkpoint(User user) {
+        List<CashbackCheckpoint> checkpoints = checkpointRepository.findByUserIdIn(List.of(user.getId()));
+        assertEquals(1, checkpoints.size());
+        return checkpoints.get(0);
+    }
+
+    private Optional<CashbackReconciliationService.CashbackDrift> drift(Long telegramId) {
+        return reconciliationService.getDrifts().stream()
+            .filter(d -> d.telegramId().equals(telegramId))
+            .findFirst();
+    }
+}
@@ -0,0 +1,116 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import uz.kuponbot.kupon.KuponApplication;
+
+/**
+ * Bitta bazaga ulangan ikkita ilova konteksti (ikki node) bilan job lock'ni tekshiradi.
+ */
+class ClusterLockTest {
+
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    // Faqat shu testda ro'yxatdan o'tkaziladi (component scan'ga tushmasligi uchun @Component yo'q)
+    public static class CountingJob {
+
+        @ClusterLocked(value = "test-counting-job", leaseSeconds = 1, minHoldSeconds = 5)
+        public void run() {
+            RUNS.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void onlyOneNodeRunsEachOccurrence() throws Exception {
+        CountingJob jobA = nodeA.getBean(CountingJob.class);
+        CountingJob jobB = nodeB.getBean(CountingJob.class);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        CompletableFuture<Void> a = CompletableFuture.runAsync(() -> awaitThen(barrier, jobA::run));
+        CompletableFuture<Void> b = CompletableFuture.runAsync(() -> awaitThen(barrier, jobB::run));
+        CompletableFuture.allOf(a, b).get(10, TimeUnit.SECONDS);
+        assertEquals(1, RUNS.get());
+
+        // minHold tugamaguncha (soati orqada qolgan node) shu ishga tushirishni qaytara olmaydi
+        jobB.run();
+        assertEquals(1, RUNS.get());
+    }
+
+    @Test
+    void heartbeatKeepsLeaseAndCrashedHolderHandsOver() throws Exception {
+        JobLockService lockA = nodeA.getBean(JobLockService.class);
+        JobLockService lockB = nodeB.getBean(JobLockService.class);
+        Duration lease = Duration.ofSeconds(1);
+
+        assertTrue(lockA.tryAcquire("test-failover", lease, Duration.ZERO).isPresent());
+        Thread.sleep(2000); // lease'dan uzoq - heartbeat uzaytirib turadi
+        assertFalse(lockB.tryAcquire("test-failover", lease, Duration.ZERO).isPresent());
+
+        // node A "o'chdi": heartbeat to'xtaydi, lock release qilinmaydi
+        lockA.shutdown();
+        Optional<JobLockService.Lease> taken = Optional.empty();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (taken.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            taken = lockB.tryAcquire("test-failover", lease, Duration.ZERO);
+        }
+        assertTrue(taken.isPresent());
+        taken.get().close();
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(KuponApplication.class, CountingJob.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:cluster-lock;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=update",
+                "cluster.node-id=" + nodeId)
+            .run();
+    }
+
+    private static void awaitThen(CyclicBarrier barrier, Runnable action) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        action.run();
+    }
+}
@@ -0,0 +1,48 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class JobRunRegistryTest {
+
+    @Test
+    void skipsRunWhilePreviousIsStillRunning() throws Exception {
+        JobRunRegistry registry = new JobRunRegistry(5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> registry.run("job", () -> {
+            started.countDown();
+            await(release);
+            return 7;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(registry.run("job", () -> 1));
+        assertTrue(registry.getJobs().get(0).running());
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+
+        JobRunRegistry.JobStatus status = registry.getJobs().get(0);
+        assertFalse(status.running());
+        assertEquals(JobRunRegistry.RunStatus.SUCCESS, status.lastRun().status());
+        assertEquals(7, status.lastRun().processed());
+        assertEquals(JobRunRegistry.RunStatus.SKIPPED, status.recentRuns().get(1).status());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
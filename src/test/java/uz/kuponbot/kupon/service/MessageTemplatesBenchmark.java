@@ -0,0 +1,148 @@
+package uz.kuponbot.kupon.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * MessageTemplates.render() ni eski String.format + switch(language) yo'li bilan solishtirish.
+ *
+ * Ishga tushirish: mvn -B test-compile, keyin IDE dan yoki
+ * java -cp target/test-classes:target/classes:&lt;classpath&gt; uz.kuponbot.kupon.service.MessageTemplatesBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplatesBenchmark {
+
+    @Param({"uz", "uz_cyrl", "ru"})
+    private String language;
+
+    private MessageTemplates templates;
+    private int purchase;
+    private int cashback;
+    private int balance;
+
+    @Setup
+    public void setUp() {
+        templates = new MessageTemplates();
+        templates.load();
+        purchase = 1_250_000;
+        cashback = 62_500;
+        balance = 187_300;
+    }
+
+    @Benchmark
+    public String cashbackTemplate() {
+        return templates.render("cashback.earned", language, purchase, cashback, balance);
+    }
+
+    @Benchmark
+    public String cashbackStringFormat() {
+        return legacyCashbackMessage(language, purchase, cashback, balance);
+    }
+
+    @Benchmark
+    public String progressTemplate() {
+        return templates.render("broadcast.progress", language, 1200, 3, 8797, 10000, 28.4, "5:09");
+    }
+
+    @Benchmark
+    public String progressStringFormat() {
+        return legacyProgressMessage(language, 1200, 3, 8797, 10000, 28.4, "5:09");
+    }
+
+    // CashbackService.formatCashbackMessage ning avvalgi ko'rinishi
+    static String legacyCashbackMessage(String language, int purchaseAmount, int cashbackAmount, int balance) {
+        String formattedPurchase = String.format("%,d", purchaseAmount);
+        String formattedCashback = String.format("%,d", cashbackAmount);
+        String formattedTotal = String.format("%,d", balance);
+
+        return switch (language) {
+            case "uz_cyrl" -> String.format(
+                "🎉 Табриклаймиз!\n\n" +
+                "Сиз Aysi Optikadan амалга оширган %s сўм харидингиз учун миннатдорчилик сифатида сизга кешбек тақдим этилди.\n\n" +
+                "💰 Берилган кешбек: %s сўм\n" +
+                "💳 Жами йиғилган кешбек: %s сўм\n\n" +
+                "Ушбу кешбекдан кейинги харидларингизда кўзойнак, линза ва бошқа оптик маҳсулотлар учун фойдаланишингиз мумкин.\n\n" +
+                "Сизнинг кўз саломатлигингиз биз учун муҳим! 👓✨",
+                formattedPurchase, formattedCashback, formattedTotal
+            );
+            case "ru" -> String.format(
+                "🎉 Поздравляем!\n\n" +
+                "В знак благодарности за вашу покупку в Aysi Optika на сумму %s сум вам начислен кешбэк.\n\n" +
+                "💰 Начислено кешбэка: %s сум\n" +
+                "💳 Всего накоплено кешбэка: %s сум\n\n" +
+                "Вы можете использовать этот кешбэк при следующих покупках очков, линз и других оптических товаров.\n\n" +
+                "Здоровье ваших глаз важно для нас! 👓✨",
+                formattedPurchase, formattedCashback, formattedTotal
+            );
+            default -> String.format(
+                "🎉 Tabriklaymiz!\n\n" +
+                "Siz Aysi Optikadan amalga oshirgan %s so'm xaridingiz uchun minnatdorchilik sifatida sizga keshbek taqdim etildi.\n\n" +
+                "💰 Berilgan keshbek: %s so'm\n" +
+                "💳 Jami yig'ilgan keshbek: %s so'm\n\n" +
+                "Ushbu keshbekdan keyingi xaridlaringizda ko'zoynak, linza va boshqa optik mahsulotlar uchun foydalanishingiz mumkin.\n\n" +
+                "Sizning ko'z salomatligingiz biz uchun muhim! 👓✨",
+                formattedPurchase, formattedCashback, formattedTotal
+            );
+        };
+    }
+
+    // KuponBot.formatBroadcastProgress ning avvalgi ko'rinishi
+    static String legacyProgressMessage(String language, int sent, int failed, int remaining, int total,
+                                        double rate, String eta) {
+        String pattern = switch (language) {
+            case "uz_cyrl" -> """
+                📤 Broadcast юборилмоқда...
+
+                ✅ Юборилди: %d
+                ❌ Хатолик: %d
+                ⏳ Қолди: %d / %d
+                ⚡ Тезлик: %.1f хабар/с
+                ⏱ Тахминий вақт: %s
+                """;
+            case "ru" -> """
+                📤 Рассылка отправляется...
+
+                ✅ Отправлено: %d
+                ❌ Ошибок: %d
+                ⏳ Осталось: %d / %d
+                ⚡ Скорость: %.1f сообщ./с
+                ⏱ Осталось времени: %s
+                """;
+            default -> """
+                📤 Broadcast yuborilmoqda...
+
+                ✅ Yuborildi: %d
+                ❌ Xatolik: %d
+                ⏳ Qoldi: %d / %d
+                ⚡ Tezlik: %.1f xabar/s
+                ⏱ Taxminiy vaqt: %s
+                """;
+        };
+        return String.format(pattern, sent, failed, remaining, total, rate, eta);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(MessageTemplatesBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,71 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class MessageTemplatesTest {
+
+    private static Locale previousLocale;
+    private static MessageTemplates templates;
+
+    @BeforeAll
+    static void setUp() {
+        // Eski String.format yo'li default locale ga bog'liq, solishtirish uchun US qo'yamiz
+        previousLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+        templates = new MessageTemplates();
+        templates.load();
+    }
+
+    @AfterAll
+    static void restoreLocale() {
+        Locale.setDefault(previousLocale);
+    }
+
+    @Test
+    void rendersSameTextAsStringFormat() {
+        for (String language : new String[] {"uz", "uz_cyrl", "ru"}) {
+            assertEquals(
+                MessageTemplatesBenchmark.legacyCashbackMessage(language, 1_250_000, 62_500, 7),
+                templates.render("cashback.earned", language, 1_250_000, 62_500, 7));
+            assertEquals(
+                MessageTemplatesBenchmark.legacyProgressMessage(language, 1200, 3, 8797, 10000, 28.45, "5:09"),
+                templates.render("broadcast.progress", language, 1200, 3, 8797, 10000, 28.45, "5:09"));
+        }
+    }
+
+    @Test
+    void rendersProfileTemplatesLikeFormerBotFormat() {
+        assertEquals(
+            String.format("\n• %s\n  💰 %,d so'm\n  🔑 %s\n  %s\n", "🎂 Tug'ilgan kun", 50_000, "ABC123", "⏰ 2 kun qoldi"),
+            templates.render("profile.voucher.line", "uz", "🎂 Tug'ilgan kun", 50_000, "ABC123",
+                templates.render("profile.voucher.days.left", "uz", 2L)));
+
+        String profile = templates.render("profile.summary", "ru", "Ali", "Valiyev", "+998901234567", "ali",
+            "01.01.1990", 1_234_567, 2_000_000, 765_433, 3, 1L, 2L, "2026-10-17");
+        assertTrue(profile.contains("💳 Текущий баланс: 1,234,567 сум\n"));
+        assertTrue(profile.contains("✅ Использованных ваучеров: 2\n📅 Зарегистрирован: 2026-10-17"));
+    }
+
+    @Test
+    void fallsBackToUzbekLatin() {
+        String uz = templates.render("notification.voucher.reminder", "uz", 2L);
+        assertEquals(uz, templates.render("notification.voucher.reminder", null, 2L));
+        assertEquals(uz, templates.render("notification.voucher.reminder", "en", 2L));
+        assertTrue(uz.contains("tugashiga 2 kun"));
+    }
+
+    @Test
+    void keepsLiteralBracesAndRejectsUnknownKeys() {
+        MessageTemplates.Template template = MessageTemplates.Template.compile("{x} {0,number} {0,foo} {1,decimal}%");
+        assertEquals("{x} -1,000 {0,foo} 99.5%", template.render(-1000, 99.46));
+        assertThrows(RuntimeException.class, () -> templates.render("no.such.key", "uz"));
+    }
+}
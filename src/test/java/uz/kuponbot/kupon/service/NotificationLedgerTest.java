@@ -0,0 +1,54 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.repository.NotificationLogRepository;
+
+/**
+ * Bir xil (rule, subject, period) faqat bir marta band qilinishini, kesh bo'sh bo'lsa ham
+ * (restart yoki boshqa instance) tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class NotificationLedgerTest {
+
+    @Autowired
+    private NotificationLedger notificationLedger;
+
+    @Autowired
+    private NotificationLogRepository notificationLogRepository;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void claimsEachKeyOnlyOnceAcrossInstances() {
+        assertTrue(notificationLedger.claim("purchase_3d", 42L, NotificationLedger.ONCE));
+        assertFalse(notificationLedger.claim("purchase_3d", 42L, NotificationLedger.ONCE));
+        assertTrue(notificationLedger.claim("eyewear_care_15d", 42L, NotificationLedger.ONCE));
+
+        NotificationLedger restarted = new NotificationLedger(notificationLogRepository, new JobRunRegistry(5), 100, 400);
+        assertFalse(restarted.claim("purchase_3d", 42L, NotificationLedger.ONCE));
+        assertTrue(restarted.claim("purchase_3d", 43L, NotificationLedger.ONCE));
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() {
+        assertTrue(notificationLedger.claim("birthday_voucher", 44L, "2026"));
+        notificationLedger.release("birthday_voucher", 44L, "2026");
+        assertTrue(notificationLedger.claim("birthday_voucher", 44L, "2026"));
+        assertFalse(notificationLedger.claim("birthday_voucher", 44L, "2026"));
+    }
+}
@@ -0,0 +1,55 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class NotificationRuleEngineTest {
+
+    @Test
+    void runsOnlySlotRulesAndCountsDuplicatesAndFailures() {
+        NotificationLedger ledger = mock(NotificationLedger.class);
+        when(ledger.claim(anyString(), eq(1L), anyString())).thenReturn(true);
+        when(ledger.claim(anyString(), eq(2L), anyString())).thenReturn(false);
+        when(ledger.claim(anyString(), eq(3L), anyString())).thenReturn(true);
+
+        List<Long> applied = new ArrayList<>();
+        NotificationRule<Long> morning = NotificationRule.of("morning", NotificationRule.Slot.MORNING,
+            (now, sink) -> List.of(1L, 2L, 3L).forEach(sink),
+            id -> id,
+            now -> NotificationLedger.ONCE,
+            id -> {
+                if (id == 3L) {
+                    throw new RuntimeException("send failed");
+                }
+                applied.add(id);
+            });
+        NotificationRule<Long> early = NotificationRule.of("early", NotificationRule.Slot.EARLY,
+            (now, sink) -> sink.accept(1L), id -> id, now -> NotificationLedger.ONCE, applied::add);
+
+        NotificationRuleEngine engine = new NotificationRuleEngine(List.of(morning, early), ledger, new JobRunRegistry(5));
+        engine.runSlot(NotificationRule.Slot.MORNING);
+
+        assertEquals(List.of(1L), applied);
+        NotificationRuleEngine.RuleStats stats = engine.getStats().get(0);
+        assertEquals(3, stats.matched());
+        assertEquals(1, stats.sent());
+        assertEquals(1, stats.duplicates());
+        assertEquals(1, stats.failed());
+        assertNull(engine.getStats().get(1).lastRunAt());
+        // Muvaffaqiyatsiz xabar kaliti bo'shatiladi, yuborilgani va dublikat esa yo'q
+        verify(ledger).release("morning", 3L, NotificationLedger.ONCE);
+        verify(ledger, never()).release("morning", 1L, NotificationLedger.ONCE);
+        verify(ledger, never()).release("morning", 2L, NotificationLedger.ONCE);
+    }
+}
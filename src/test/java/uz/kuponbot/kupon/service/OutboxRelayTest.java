@@ -0,0 +1,98 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.OutboxMessage;
+import uz.kuponbot.kupon.repository.OutboxMessageRepository;
+
+/**
+ * Rollback bo'lgan tranzaksiya xabari yuborilmasligini, commit bo'lgani yuborilishini
+ * va xato bo'lganda xabar keyinroq qayta urinish uchun qolishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class OutboxRelayTest {
+
+    @Autowired
+    private NotificationOutbox outbox;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void sendsOnlyCommittedMessagesAndRetriesFailures() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(sendGateway.sendText(eq(940_002L), anyString(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Forbidden: bot was blocked")));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            outbox.enqueue(940_003L, "rolled back");
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> {
+            outbox.enqueue(940_001L, "committed");
+            outbox.enqueue(940_002L, "blocked user");
+        });
+        assertTrue(outbox.getStats().pending() >= 2);
+
+        relay.drain();
+
+        verify(sendGateway).sendText(eq(940_001L), eq("committed"), any());
+        verify(sendGateway, never()).sendText(eq(940_003L), anyString(), any());
+
+        OutboxMessage sent = message(940_001L);
+        assertEquals(OutboxMessage.Status.SENT, sent.getStatus());
+        assertEquals(1, sent.getAttempts());
+
+        OutboxMessage failed = message(940_002L);
+        assertEquals(OutboxMessage.Status.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals("Forbidden: bot was blocked", failed.getLastError());
+        assertNull(sent.getLastError());
+    }
+
+    private OutboxMessage message(Long chatId) {
+        List<OutboxMessage> messages = outboxMessageRepository.findAll().stream()
+            .filter(m -> m.getChatId().equals(chatId))
+            .toList();
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+}
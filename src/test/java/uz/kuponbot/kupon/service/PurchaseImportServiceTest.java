@@ -0,0 +1,127 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.Cashback;
+import uz.kuponbot.kupon.entity.ScheduledMessage;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.CashbackRepository;
+import uz.kuponbot.kupon.repository.OutboxMessageRepository;
+import uz.kuponbot.kupon.repository.ScheduledMessageRepository;
+import uz.kuponbot.kupon.repository.UserRepository;
+
+/**
+ * CSV va Excel importi: balanslar foydalanuvchi bo'yicha jamlanishini, follow-up'lar va xabarlar
+ * navbatga tushishini hamda noto'g'ri qatorlar hisobotda qaytishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class PurchaseImportServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PurchaseImportService importService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CashbackRepository cashbackRepository;
+
+    @Autowired
+    private ScheduledMessageRepository scheduledMessageRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void importsCsvAndReportsInvalidRows() throws Exception {
+        User first = userService.createUser(990_001L, null);
+        User second = userService.createUser(990_002L, null);
+        String csv = "telegram_id;purchase_amount;description\n"
+            + "990001;100 000;Ko'zoynak\n"
+            + "990002;40000;\n"
+            + "990001;\"20000\";\"Linza; 2 dona\"\n"
+            + "990999;50000;unknown\n"
+            + "990002;abc;bad amount\n"
+            + "\n";
+
+        PurchaseImportService.ImportReport report = importService.importPurchases("till.csv",
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5, report.totalRows());
+        assertEquals(3, report.imported());
+        assertEquals(2, report.failed());
+        assertEquals(160_000, report.totalPurchase());
+        assertEquals(8_000, report.totalCashback());
+        assertNull(report.rows().get(0).error());
+        assertEquals(2, report.rows().get(0).row());
+        assertEquals("User not found", report.rows().get(3).error());
+        assertEquals("Invalid purchase_amount", report.rows().get(4).error());
+
+        assertEquals(6_000, userRepository.findCashbackBalanceById(first.getId()));
+        assertEquals(2_000, userRepository.findCashbackBalanceById(second.getId()));
+        assertEquals("Linza; 2 dona", cashbackRepository.findByUserOrderByCreatedAtDesc(first).stream()
+            .map(Cashback::getDescription).filter(d -> d.startsWith("Linza")).findFirst().orElseThrow());
+
+        // Har bir harid uchun 3 va 15 kunlik follow-up, har bir foydalanuvchiga bitta xabar
+        long followUps = cashbackRepository.findByUserOrderByCreatedAtDesc(first).stream()
+            .mapToLong(c -> scheduledMessageRepository.findAll().stream()
+                .filter(m -> m.getSubjectId().equals(c.getId()))
+                .filter(m -> m.getKind() == ScheduledMessage.Kind.PURCHASE_3D
+                    || m.getKind() == ScheduledMessage.Kind.EYEWEAR_CARE_15D)
+                .count())
+            .sum();
+        assertEquals(4, followUps);
+        assertEquals(1, outboxMessageRepository.findAll().stream().filter(m -> m.getChatId().equals(990_001L)).count());
+        assertEquals(1, outboxMessageRepository.findAll().stream().filter(m -> m.getChatId().equals(990_002L)).count());
+    }
+
+    @Test
+    void importsExcel() throws Exception {
+        User user = userService.createUser(990_003L, null);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("telegram_id");
+            header.createCell(1).setCellValue("purchase_amount");
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue(990_003d);
+            row.createCell(1).setCellValue(200_000d);
+            workbook.write(file);
+        }
+
+        PurchaseImportService.ImportReport report = importService.importPurchases("till.xlsx",
+            new ByteArrayInputStream(file.toByteArray()));
+
+        assertEquals(1, report.imported());
+        assertEquals(0, report.failed());
+        assertEquals(10_000, userRepository.findCashbackBalanceById(user.getId()));
+    }
+}
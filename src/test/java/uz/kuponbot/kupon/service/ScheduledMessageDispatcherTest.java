@@ -0,0 +1,174 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.ScheduledMessage;
+import uz.kuponbot.kupon.entity.User;
+import uz.kuponbot.kupon.repository.ScheduledMessageRepository;
+
+/**
+ * Harid va ro'yxatdan o'tish follow-up'larni navbatga yozishini va poller faqat vaqti kelganlarini
+ * bir marta yuborishini, qayta olingan va xato bilan tugagan xabarlar qayta yuborilishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class ScheduledMessageDispatcherTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CashbackService cashbackService;
+
+    @Autowired
+    private ScheduledMessageQueue queue;
+
+    @Autowired
+    private ScheduledMessageDispatcher dispatcher;
+
+    @Autowired
+    private ScheduledMessageRepository scheduledMessageRepository;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void enqueuesFollowUpsAndDeliversOnlyDueOnes() {
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        User user = userService.createUser(930_001L, null);
+        user.setFirstName("Test");
+        user.setBirthDate("01.01.1990");
+        userService.completeRegistration(user);
+        Long cashbackId = cashbackService.addPurchase(930_001L, 100_000, "test").getId();
+
+        assertEquals(Map.of(
+                ScheduledMessage.Kind.PURCHASE_3D, ScheduledMessage.Status.PENDING,
+                ScheduledMessage.Kind.EYEWEAR_CARE_15D, ScheduledMessage.Status.PENDING,
+                ScheduledMessage.Kind.EYE_CHECKUP_3M, ScheduledMessage.Status.PENDING,
+                ScheduledMessage.Kind.FREE_CONSULTATION_6M, ScheduledMessage.Status.PENDING,
+                ScheduledMessage.Kind.ANNIVERSARY_6M, ScheduledMessage.Status.PENDING),
+            statuses(cashbackId, user.getId()));
+        assertFalse(queue.enqueue(ScheduledMessage.Kind.PURCHASE_3D, cashbackId, LocalDateTime.now()));
+
+        // 3 kunlik xabar vaqti keldi
+        ScheduledMessage purchase3d = scheduledMessageRepository.findAll().stream()
+            .filter(m -> m.getKind() == ScheduledMessage.Kind.PURCHASE_3D && m.getSubjectId().equals(cashbackId))
+            .findFirst().orElseThrow();
+        purchase3d.setDueAt(LocalDateTime.now().minusMinutes(1));
+        scheduledMessageRepository.save(purchase3d);
+
+        dispatcher.deliverDue();
+        dispatcher.deliverDue();
+
+        Map<ScheduledMessage.Kind, ScheduledMessage.Status> after = statuses(cashbackId, user.getId());
+        assertEquals(ScheduledMessage.Status.SENT, after.get(ScheduledMessage.Kind.PURCHASE_3D));
+        assertEquals(ScheduledMessage.Status.PENDING, after.get(ScheduledMessage.Kind.EYEWEAR_CARE_15D));
+        assertEquals(1, scheduledMessageRepository.findById(purchase3d.getId()).orElseThrow().getAttempts());
+        verify(sendGateway, atLeastOnce()).sendText(eq(1807166165L), contains("3 Kunlik Harid"), any());
+    }
+
+    @Test
+    void redeliversReleasedAndFailedMessages() {
+        User user = userService.createUser(935_001L, null);
+        user.setFirstName("Test");
+        user.setBirthDate("01.01.1990");
+        userService.completeRegistration(user);
+        Long cashbackId = cashbackService.addPurchase(935_001L, 100_000, "test").getId();
+
+        // Node band qilgandan keyin to'xtab qolgan: qator qayta olinib yuboriladi
+        ScheduledMessage purchase3d = find(ScheduledMessage.Kind.PURCHASE_3D, cashbackId);
+        purchase3d.setStatus(ScheduledMessage.Status.PROCESSING);
+        purchase3d.setClaimedAt(LocalDateTime.now().minusHours(1));
+        purchase3d.setDueAt(LocalDateTime.now().minusHours(1));
+        scheduledMessageRepository.save(purchase3d);
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.deliverDue();
+
+        assertEquals(ScheduledMessage.Status.SENT, find(ScheduledMessage.Kind.PURCHASE_3D, cashbackId).getStatus());
+
+        // Yuborish xatosi: xabar kechiktirib navbatga qaytadi va keyingi urinishda yuboriladi
+        ScheduledMessage eyewear = find(ScheduledMessage.Kind.EYEWEAR_CARE_15D, cashbackId);
+        eyewear.setDueAt(LocalDateTime.now().minusMinutes(1));
+        scheduledMessageRepository.save(eyewear);
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenThrow(new IllegalStateException("send queue full"));
+
+        dispatcher.deliverDue();
+
+        ScheduledMessage retried = find(ScheduledMessage.Kind.EYEWEAR_CARE_15D, cashbackId);
+        assertEquals(ScheduledMessage.Status.PENDING, retried.getStatus());
+        assertEquals("send queue full", retried.getLastError());
+        assertTrue(retried.getDueAt().isAfter(LocalDateTime.now()));
+
+        retried.setDueAt(LocalDateTime.now().minusMinutes(1));
+        scheduledMessageRepository.save(retried);
+        reset(sendGateway);
+        when(sendGateway.sendText(anyLong(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.deliverDue();
+
+        ScheduledMessage delivered = find(ScheduledMessage.Kind.EYEWEAR_CARE_15D, cashbackId);
+        assertEquals(ScheduledMessage.Status.SENT, delivered.getStatus());
+        assertEquals(2, delivered.getAttempts());
+    }
+
+    @Test
+    void movesNightTimeDueToMorning() {
+        ZoneId tashkent = ZoneId.of("Asia/Tashkent");
+        LocalDateTime lateEvening = ZonedDateTime.of(2026, 10, 17, 23, 30, 0, 0, tashkent)
+            .withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        LocalDateTime nextMorning = ZonedDateTime.of(2026, 10, 18, 9, 0, 0, 0, tashkent)
+            .withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        LocalDateTime afternoon = ZonedDateTime.of(2026, 10, 17, 14, 15, 0, 0, tashkent)
+            .withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+
+        assertEquals(nextMorning, queue.toDaytime(lateEvening));
+        assertEquals(afternoon, queue.toDaytime(afternoon));
+    }
+
+    private ScheduledMessage find(ScheduledMessage.Kind kind, Long subjectId) {
+        return scheduledMessageRepository.findAll().stream()
+            .filter(m -> m.getKind() == kind && m.getSubjectId().equals(subjectId))
+            .findFirst().orElseThrow();
+    }
+
+    private Map<ScheduledMessage.Kind, ScheduledMessage.Status> statuses(Long cashbackId, Long userId) {
+        return scheduledMessageRepository.findAll().stream()
+            .filter(m -> m.getSubjectId().equals(isPurchaseKind(m.getKind()) ? cashbackId : userId))
+            .collect(Collectors.toMap(ScheduledMessage::getKind, ScheduledMessage::getStatus));
+    }
+
+    private static boolean isPurchaseKind(ScheduledMessage.Kind kind) {
+        return kind == ScheduledMessage.Kind.PURCHASE_3D || kind == ScheduledMessage.Kind.EYEWEAR_CARE_15D;
+    }
+}
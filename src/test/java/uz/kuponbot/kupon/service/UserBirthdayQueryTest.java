@@ -0,0 +1,65 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.User;
+
+/**
+ * Tug'ilgan kun bo'yicha qidiruv faqat shu kunga mos foydalanuvchilarni qaytarishini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class UserBirthdayQueryTest {
+
+    @Autowired
+    private UserService userService;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void findsRecipientsByBirthdayIncludingLeapDay() {
+        registered(920_001L, "28.02.1990");
+        registered(920_002L, "29.02.1992");
+        registered(920_003L, "01.03.1990");
+        registered(920_004L, "31.02.1990"); // mavjud bo'lmagan sana - indeksga tushmaydi
+
+        assertEquals(List.of(920_001L, 920_002L), birthdayIds(LocalDate.of(2027, 2, 28)));
+        assertEquals(List.of(920_001L), birthdayIds(LocalDate.of(2028, 2, 28)));
+        assertEquals(List.of(920_003L), birthdayIds(LocalDate.of(2027, 3, 1)));
+        assertNull(User.parseBirthDate("31.02.1990"));
+    }
+
+    private void registered(Long telegramId, String birthDate) {
+        User user = userService.createUser(telegramId, null);
+        user.setBirthDate(birthDate);
+        user.setState(User.UserState.REGISTERED);
+        userService.save(user);
+    }
+
+    private List<Long> birthdayIds(LocalDate date) {
+        List<Long> ids = new ArrayList<>();
+        userService.forEachRecipientWithBirthday(date, user -> {
+            if (user.getTelegramId() >= 920_000L && user.getTelegramId() < 921_000L) {
+                ids.add(user.getTelegramId());
+            }
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+package uz.kuponbot.kupon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uz.kuponbot.kupon.bot.TelegramSendGateway;
+import uz.kuponbot.kupon.config.BotConfig;
+import uz.kuponbot.kupon.entity.User;
+
+/**
+ * Foydalanuvchi keshining LRU va TTL bo'yicha tozalanishini, UserService.save commit'dan keyin
+ * keshni yangilashini, rollback'da yozuv qolmasligini va keshdagi obyekt tashqaridan o'zgarmasligini tekshiradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BotConfig.class))
+class UserCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private TelegramSendGateway sendGateway;
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        UserCache cache = new UserCache(2, 600);
+        cache.put(user(1L, "One"));
+        cache.put(user(2L, "Two"));
+        cache.get(1L);
+        cache.put(user(3L, "Three"));
+
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(3L));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() throws InterruptedException {
+        UserCache cache = new UserCache(10, 1);
+        cache.put(user(1L, "One"));
+        assertNotNull(cache.get(1L));
+
+        Thread.sleep(1_100);
+
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void returnsCopiesSoCallersCannotChangeCachedUser() {
+        UserCache cache = new UserCache(10, 600);
+        User original = user(1L, "One");
+        cache.put(original);
+        original.setFullName("Changed before get");
+        cache.get(1L).setFullName("Changed after get");
+
+        assertEquals("One", cache.get(1L).getFullName());
+    }
+
+    @Test
+    void saveWritesThroughOnlyAfterCommit() {
+        userService.createUser(945_001L, null);
+        User user = userService.findByTelegramId(945_001L).orElseThrow();
+        user.setFullName("Committed Name");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.save(user);
+            // Commit'gacha keshda na eski, na yangi qiymat bo'ladi
+            assertNull(userCache.get(945_001L));
+        });
+
+        assertEquals("Committed Name", userCache.get(945_001L).getFullName());
+    }
+
+    @Test
+    void rollbackLeavesNoUncommittedUserInCache() {
+        userService.createUser(945_002L, null);
+        User user = userService.findByTelegramId(945_002L).orElseThrow();
+        user.setFullName("Rolled Back");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.save(user);
+            // Shu tranzaksiyadagi o'qish saqlanmagan qiymatni keshga qo'yadi
+            userService.findByTelegramId(945_002L);
+            status.setRollbackOnly();
+        });
+
+        assertNull(userCache.get(945_002L));
+        assertNull(userService.findByTelegramId(945_002L).orElseThrow().getFullName());
+    }
+
+    private static User user(Long telegramId, String fullName) {
+        User user = new User();
+        user.setTelegramId(telegramId);
+        user.setFullName(fullName);
+        return user;
+    }
+}